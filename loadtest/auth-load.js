@@ -0,0 +1,49 @@
+// Carga sobre el camino bloqueante de la API: /auth/refresh-token valida el JWT
+// y consulta MySQL en cada request.
+// Uso: k6 run -e BASE_URL=http://localhost:8080 -e USERNAME=... -e PASSWORD=... \
+//        --summary-export=loadtest/results/<modo>.json loadtest/auth-load.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERNAME = __ENV.USERNAME || 'loadtest';
+const PASSWORD = __ENV.PASSWORD || 'loadtest';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export const options = {
+  scenarios: {
+    ramp: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: 200 },
+        { duration: '2m', target: 800 },
+        { duration: '30s', target: 0 },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+// El rate limit es por IP: cada request sale con una IP distinta en X-Forwarded-For
+function randomClientIp() {
+  const octet = () => Math.floor(Math.random() * 254) + 1;
+  return `10.${octet()}.${octet()}.${octet()}`;
+}
+
+export function setup() {
+  const res = http.post(`${BASE_URL}/auth/login`,
+    JSON.stringify({ username: USERNAME, password: PASSWORD }),
+    { headers: { ...JSON_HEADERS, 'X-Forwarded-For': randomClientIp() } });
+  check(res, { 'login 200': (r) => r.status === 200 });
+  return { refreshToken: res.json('refreshToken') };
+}
+
+export default function (data) {
+  const res = http.post(`${BASE_URL}/auth/refresh-token`,
+    JSON.stringify({ refreshToken: data.refreshToken }),
+    { headers: { ...JSON_HEADERS, 'X-Forwarded-For': randomClientIp() } });
+  check(res, { 'status 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Compara dos corridas de k6 exportadas con --summary-export.
+# Uso: loadtest/compare.sh results/platform.json results/virtual.json
+set -euo pipefail
+
+row() {
+  jq -r --arg name "$2" '[$name,
+      (.metrics.http_reqs.rate | floor),
+      (.metrics.http_req_duration["p(90)"] | . * 10 | round / 10),
+      (.metrics.http_req_duration["p(95)"] | . * 10 | round / 10),
+      (.metrics.http_req_duration.max | . * 10 | round / 10),
+      (.metrics.http_req_failed.value * 100 | . * 100 | round / 100)] | @tsv' "$1"
+}
+
+{
+  printf 'modo\treq/s\tp90 ms\tp95 ms\tmax ms\terrores %%\n'
+  row "$1" "$(basename "$1" .json)"
+  row "$2" "$(basename "$2" .json)"
+} | column -t -s $'\t'
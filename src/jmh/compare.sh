@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Compara una corrida de JMH (-rf json) contra la baseline guardada.
+# Uso: src/jmh/compare.sh src/jmh/baseline.json target/jmh-result.json [umbral %]
+# Sale con 1 si algún benchmark empeoró más que el umbral. Si no hay baseline,
+# la corrida actual queda como baseline.
+set -euo pipefail
+
+baseline=$1
+result=$2
+threshold=${3:-10}
+
+if [[ ! -f "$baseline" ]]; then
+  cp "$result" "$baseline"
+  echo "Sin baseline: se guardó $result como $baseline"
+  exit 0
+fi
+
+table=$(jq -r -n --slurpfile base "$baseline" --slurpfile cur "$result" --argjson threshold "$threshold" '
+  # Clase.método + parámetros: identifica el mismo benchmark entre corridas
+  def id: (.benchmark | split(".") | .[-2:] | join("."))
+      + ((.params // {}) | to_entries | map(" " + .key + "=" + .value) | join(""));
+  def round2: . * 100 | round / 100;
+  # Positivo = mejor. thrpt: más es mejor; avgt, sample y ss: menos es mejor
+  def change($b; $c): if $c.mode == "thrpt"
+      then ($c.primaryMetric.score / $b.primaryMetric.score - 1) * 100
+      else ($b.primaryMetric.score / $c.primaryMetric.score - 1) * 100 end;
+
+  ($base[0] | map({key: id, value: .}) | from_entries) as $b
+  | $cur[0][]
+  | id as $id
+  | if $b[$id] == null then
+      [$id, "-", (.primaryMetric.score | round2), .primaryMetric.scoreUnit, "-", "nuevo"]
+    else
+      change($b[$id]; .) as $change
+      | [$id, ($b[$id].primaryMetric.score | round2), (.primaryMetric.score | round2),
+         .primaryMetric.scoreUnit, ($change | round2),
+         (if $change < -$threshold then "REGRESION" else "ok" end)]
+    end
+  | @tsv')
+
+{
+  printf 'benchmark\tbaseline\tactual\tunidad\tcambio %%\testado\n'
+  printf '%s\n' "$table"
+} | column -t -s $'\t'
+
+if grep -q 'REGRESION' <<< "$table"; then
+  echo "Hay benchmarks más de ${threshold}% peor que la baseline" >&2
+  exit 1
+fi
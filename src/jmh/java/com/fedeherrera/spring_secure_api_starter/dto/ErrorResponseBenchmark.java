@@ -0,0 +1,74 @@
+package com.fedeherrera.spring_secure_api_starter.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialización del cuerpo de error de los 401/403/400. JwtAuthenticationEntryPoint y
+ * CustomAccessDeniedHandler crean un ObjectMapper por respuesta; se compara contra uno compartido.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorResponseBenchmark {
+
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+
+    private ErrorResponse unauthorized;
+    private ErrorResponse validation;
+
+    @Setup
+    public void setUp() {
+        unauthorized = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now().toString())
+                .status(401)
+                .error("Unauthorized")
+                .message("Token inválido, expirado o no proporcionado")
+                .path("/api/me")
+                .build();
+        validation = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now().toString())
+                .status(400)
+                .error("Bad Request")
+                .message("Error de validación")
+                .path("/auth/register")
+                .validationErrors(Map.of(
+                        "username", "El nombre de usuario es obligatorio",
+                        "email", "El email no es válido",
+                        "password", "La contraseña debe tener al menos 8 caracteres"))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] unauthorizedNewMapper() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsBytes(unauthorized);
+    }
+
+    @Benchmark
+    public byte[] unauthorizedSharedMapper() throws JsonProcessingException {
+        return sharedMapper.writeValueAsBytes(unauthorized);
+    }
+
+    @Benchmark
+    public byte[] validationErrorsSharedMapper() throws JsonProcessingException {
+        return sharedMapper.writeValueAsBytes(validation);
+    }
+}
@@ -0,0 +1,79 @@
+package com.fedeherrera.spring_secure_api_starter.entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Authorities del principal: se consultan en cada chequeo de @PreAuthorize / hasRole
+ * y se arman una vez por request (desde el JWT) o por miss de la cache de principals.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserPrincipalBenchmark {
+
+    private static final List<String> ROLE_NAMES = List.of("ROLE_USER", "ROLE_ADMIN");
+
+    private Set<GrantedAuthority> sharedAuthorities;
+    private UserPrincipal principal;
+
+    @Setup
+    public void setUp() {
+        // Como RoleCatalog: instancias compartidas entre principals
+        sharedAuthorities = ROLE_NAMES.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.<GrantedAuthority>toUnmodifiableSet());
+        principal = new UserPrincipal(1L, "fede", null, true, 0L, null, sharedAuthorities);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return principal.getAuthorities();
+    }
+
+    // Lo que hace AuthorityAuthorizationManager para hasRole('ADMIN')
+    @Benchmark
+    public boolean hasAdminRole() {
+        for (GrantedAuthority authority : principal.getAuthorities()) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Claim "roles" al firmar un token
+    @Benchmark
+    public List<String> getRoleNames() {
+        return principal.getRoleNames();
+    }
+
+    @Benchmark
+    public UserPrincipal buildFromRoleNames() {
+        return new UserPrincipal(1L, "fede", null, true, 0L, null, ROLE_NAMES);
+    }
+
+    @Benchmark
+    public UserPrincipal buildFromSharedAuthorities() {
+        return new UserPrincipal(1L, "fede", null, true, 0L, null, sharedAuthorities);
+    }
+}
@@ -0,0 +1,59 @@
+package com.fedeherrera.spring_secure_api_starter.filter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * Costo por request del trace id: generación (UUID aleatorio) y el filtro completo con MDC.
+ * Con varios threads se ve la contención sobre el SecureRandom compartido de UUID.randomUUID().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceIdFilterBenchmark {
+
+    private TraceIdFilter filter;
+
+    @Setup
+    public void setUp() {
+        filter = new TraceIdFilter();
+    }
+
+    @Benchmark
+    public String newTraceId() {
+        return TraceIdFilter.newTraceId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String newTraceIdConcurrent() {
+        return TraceIdFilter.newTraceId();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/me"), response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,127 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fedeherrera.spring_secure_api_starter.config.JwtProperties;
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.JwtKeyRing;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Emisión y validación de JWT tal como las usan login, refresh y JwtAuthFilter.
+ * La validación se mide con y sin VerifiedTokenCache (jwt.token-cache.enabled).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private JwtService jwtService;
+    private UserPrincipal principal;
+
+    @Setup
+    public void setUp() {
+        RoleCatalog roleCatalog = roleCatalog();
+        jwtService = jwtService(roleCatalog, false);
+        principal = principal(roleCatalog);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateToken(principal);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtService.generateRefreshToken(principal, 1L, 0L);
+    }
+
+    @Benchmark
+    public ValidatedToken validate(Validation state) {
+        return state.jwtService.validate(state.accessToken);
+    }
+
+    // Camino completo del filtro en modo stateless: validar y armar el principal desde los claims
+    @Benchmark
+    public Optional<UserPrincipal> validateAndBuildPrincipal(Validation state) {
+        return state.jwtService.toPrincipal(state.jwtService.validate(state.accessToken));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Validation {
+
+        @Param({"false", "true"})
+        public boolean tokenCache;
+
+        JwtService jwtService;
+        String accessToken;
+
+        @Setup
+        public void setUp() {
+            RoleCatalog roleCatalog = roleCatalog();
+            jwtService = jwtService(roleCatalog, tokenCache);
+            accessToken = jwtService.generateToken(principal(roleCatalog));
+        }
+    }
+
+    private static JwtService jwtService(RoleCatalog roleCatalog, boolean tokenCache) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(SECRET);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtService service = new JwtService(new JwtKeyRing(properties),
+                new VerifiedTokenCache(meterRegistry, tokenCache, 50_000, Duration.ofMinutes(15)),
+                roleCatalog, meterRegistry);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(service, "refreshExpiration", 604_800_000L);
+        return service;
+    }
+
+    private static RoleCatalog roleCatalog() {
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAll()).thenReturn(List.of(role(1L, "ROLE_USER"), role(2L, "ROLE_ADMIN")));
+        return new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofMinutes(1));
+    }
+
+    private static UserPrincipal principal(RoleCatalog roleCatalog) {
+        return new UserPrincipal(1L, "fede", null, true, 0L, null,
+                roleCatalog.authorities(List.of("ROLE_USER", "ROLE_ADMIN")));
+    }
+
+    private static Role role(Long id, String name) {
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        return role;
+    }
+}
@@ -0,0 +1,92 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fedeherrera.spring_secure_api_starter.ratelimit.ClientAddressKey;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.InMemoryRateLimitBackend;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitPolicy;
+
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Rate limiter en memoria bajo contención: 8 threads contra un mismo cliente (un balde
+ * caliente) y contra 10.000 IPs distintas (el store de baldes).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RateLimitServiceBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private InMemoryRateLimitBackend backend;
+    private RateLimitService rateLimitService;
+    private long[] clients;
+
+    @Setup
+    public void setUp() {
+        backend = new InMemoryRateLimitBackend(100_000, Duration.ofMinutes(2));
+        rateLimitService = new RateLimitService(backend, new SimpleMeterRegistry());
+        clients = new long[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = ClientAddressKey.parse("10.0." + (i >> 8) + "." + (i & 0xFF));
+        }
+    }
+
+    @Benchmark
+    public Bucket resolveBucketSameClient() {
+        return backend.resolveBucket(clients[0], RateLimitPolicy.API);
+    }
+
+    @Benchmark
+    public Bucket resolveBucketDistinctClients(Cursor cursor) {
+        return backend.resolveBucket(clients[cursor.next()], RateLimitPolicy.API);
+    }
+
+    // Lo que hace RateLimitFilter por request: balde + consumo + métricas allowed/denied
+    @Benchmark
+    public boolean tryConsumeSameClient() {
+        return rateLimitService.tryConsume(clients[0], RateLimitPolicy.API);
+    }
+
+    @Benchmark
+    public boolean tryConsumeDistinctClients(Cursor cursor) {
+        return rateLimitService.tryConsume(clients[cursor.next()], RateLimitPolicy.API);
+    }
+
+    // Cada thread recorre los clientes desde un punto distinto
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        @Setup
+        public void setUp() {
+            index = ThreadLocalRandom.current().nextInt(CLIENTS);
+        }
+
+        int next() {
+            index = index + 1 == CLIENTS ? 0 : index + 1;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * @Async usa el applicationTaskExecutor de Spring Boot: con spring.threads.virtual.enabled=true
+ * es un virtual thread por tarea, si no un pool de platform threads. En ambos casos Boot le
+ * aplica este TaskDecorator, así el traceId y el usuario autenticado llegan a la tarea.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    @Bean
+    public TaskDecorator requestContextTaskDecorator() {
+        return new RequestContextTaskDecorator();
+    }
+}
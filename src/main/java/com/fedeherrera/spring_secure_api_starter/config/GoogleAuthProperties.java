@@ -9,6 +9,8 @@ import org.springframework.context.annotation.Configuration;
 public class GoogleAuthProperties {
     private String id;
     private String secret;
+    // Certificados con los que Google firma los ID tokens (formato x509 por kid)
+    private String certsUrl = "https://www.googleapis.com/oauth2/v1/certs";
 
     // Getters and Setters
     public String getId() {
@@ -26,4 +28,12 @@ public class GoogleAuthProperties {
     public void setSecret(String secret) {
         this.secret = secret;
     }
+
+    public String getCertsUrl() {
+        return certsUrl;
+    }
+
+    public void setCertsUrl(String certsUrl) {
+        this.certsUrl = certsUrl;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+/**
+ * Un único verificador de ID tokens de Google para toda la app.
+ * GooglePublicKeysManager guarda los certificados el tiempo que indica el Cache-Control
+ * de Google y los refresca bajo un lock (un solo fetch aunque lleguen muchos logins juntos).
+ */
+@Configuration
+@ConditionalOnProperty(name = "google.oauth2.client.id")
+public class GoogleIdTokenConfig {
+
+    @Bean
+    public HttpTransport googleHttpTransport() {
+        return new NetHttpTransport();
+    }
+
+    @Bean
+    public GooglePublicKeysManager googlePublicKeysManager(HttpTransport googleHttpTransport,
+            GoogleAuthProperties properties) {
+        return new GooglePublicKeysManager.Builder(googleHttpTransport, JacksonFactory.getDefaultInstance())
+                .setPublicCertsEncodedUrl(properties.getCertsUrl())
+                .build();
+    }
+
+    @Bean
+    public GoogleIdTokenVerifier googleIdTokenVerifier(GooglePublicKeysManager googlePublicKeysManager,
+            GoogleAuthProperties properties) {
+        return new GoogleIdTokenVerifier.Builder(googlePublicKeysManager)
+                .setAudience(List.of(properties.getId()))
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Claves de firma de los JWT.
+ * - secret / key-id: clave activa, firma los tokens nuevos
+ * - retired-keys: claves anteriores, solo se aceptan para verificar (rotación sin downtime)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt")
+@Getter
+@Setter
+public class JwtProperties {
+
+    private String secret;
+
+    private String keyId = "default";
+
+    private List<RetiredKey> retiredKeys = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class RetiredKey {
+        private String keyId;
+        private String secret;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Hashing de passwords.
+ * - threads / queue-capacity: pool dedicado; si la cola está llena se rechaza con 503
+ * - strength: costo fijo de BCrypt; 0 = se calibra al arrancar para acercarse a target-latency
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.security.password-hashing")
+@Getter
+@Setter
+public class PasswordHashingProperties {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int queueCapacity = 64;
+
+    private Duration timeout = Duration.ofSeconds(5);
+
+    private int strength = 0;
+
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    private int minStrength = 10;
+
+    private int maxStrength = 14;
+}
@@ -0,0 +1,44 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import java.util.Map;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Copia el MDC (traceId) y la autenticación del thread que encola la tarea al thread
+ * que la ejecuta, y restaura el estado anterior al terminar. Vale tanto para el pool
+ * de platform threads como para un virtual thread por tarea.
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            try {
+                setMdc(mdc);
+                SecurityContextHolder.setContext(securityContext);
+                runnable.run();
+            } finally {
+                setMdc(previousMdc);
+                SecurityContextHolder.setContext(previousContext);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,9 +25,11 @@ import com.fedeherrera.spring_secure_api_starter.dto.DTOResetPassword;
 import com.fedeherrera.spring_secure_api_starter.dto.EmailReset;
 import com.fedeherrera.spring_secure_api_starter.dto.LoginRequest;
 import com.fedeherrera.spring_secure_api_starter.dto.LoginResponse;
+import com.fedeherrera.spring_secure_api_starter.dto.LogoutRequest;
 import com.fedeherrera.spring_secure_api_starter.dto.PublicRegisterRequest;
 import com.fedeherrera.spring_secure_api_starter.dto.RefreshTokenRequest;
 import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken.TokenType;
 import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
 import com.fedeherrera.spring_secure_api_starter.service.AuthService;
 import com.fedeherrera.spring_secure_api_starter.service.UserService;
@@ -168,13 +171,11 @@ public class AuthController {
     })
     @GetMapping("/verify")
     public ResponseEntity<?> verificarCuenta(@RequestParam String token) {
-        User user = verificationService.validateToken(token)
+        User user = verificationService.consumeToken(token, TokenType.VERIFICATION)
+                .flatMap(userService::findById)
                 .orElseThrow(() -> new RegistrationException("Token inválido o expirado"));
 
-        user.setEnabled(true);
-        userService.save(user);
-
-        verificationService.deleteToken(token);
+        userService.setEnabled(user, true);
 
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cuenta verificada correctamente");
@@ -184,6 +185,21 @@ public class AuthController {
                 .body(response);
     }
 
+    @Operation(summary = "Cerrar sesión",
+              description = "Revoca el access token actual y, si se envía, la sesión del refresh token")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Sesión cerrada"),
+        @ApiResponse(responseCode = "401", description = "Token inválido o expirado")
+    })
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody(required = false) LogoutRequest request) {
+        String accessToken = authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization;
+        authService.logout(accessToken, request == null ? null : request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
    @PostMapping("/refresh-token")
 public ResponseEntity<LoginResponse> refreshToken(
     @Valid @RequestBody RefreshTokenRequest request
@@ -1,5 +1,7 @@
 package com.fedeherrera.spring_secure_api_starter.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -8,6 +10,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.fedeherrera.spring_secure_api_starter.dto.GoogleLoginRequest;
 import com.fedeherrera.spring_secure_api_starter.dto.LoginResponse;
 import com.fedeherrera.spring_secure_api_starter.service.AuthService;
+import com.fedeherrera.spring_secure_api_starter.service.GoogleLoginExecutor;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -25,11 +28,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class GoogleAuthController {
 
     private final AuthService authService;
+    private final GoogleLoginExecutor googleLoginExecutor;
 
     public GoogleAuthController(
-        AuthService authService
+        AuthService authService,
+        GoogleLoginExecutor googleLoginExecutor
     ) {
         this.authService = authService;
+        this.googleLoginExecutor = googleLoginExecutor;
     }
 
     @Operation(
@@ -51,10 +57,15 @@ public class GoogleAuthController {
             responseCode = "400",
             description = "Solicitud inválida",
             content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Demasiados logins en curso o Google no respondió a tiempo",
+            content = @Content
         )
     })
     @PostMapping("/login")
-    public LoginResponse login(
+    public CompletableFuture<LoginResponse> login(
         @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Token de identificación de Google",
             required = true,
@@ -62,6 +73,7 @@ public class GoogleAuthController {
         )
         @RequestBody GoogleLoginRequest request
     ) {
-        return authService.loginWithGoogle(request.idToken());
+        // Se resuelve en el pool de GoogleLoginExecutor: el thread de Tomcat queda libre
+        return googleLoginExecutor.submit(() -> authService.loginWithGoogle(request.idToken()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.fedeherrera.spring_secure_api_starter.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportSummary;
+import com.fedeherrera.spring_secure_api_starter.service.UserImportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Alta masiva de usuarios. El archivo se lee como stream (no se carga entero en memoria)
+ * y la respuesta es NDJSON: una línea por fila a medida que se procesa cada lote y
+ * al final una línea con el resumen.
+ */
+@Tag(name = "Autenticacion", description = "APIs para autenticación y registro de usuarios")
+@RestController
+@RequestMapping("/auth")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    public UserImportController(UserImportService userImportService, ObjectMapper objectMapper) {
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(summary = "Importar usuarios (Admin)",
+            description = "Crea usuarios en lote desde NDJSON (un AdminCreateUserRequest por línea) o CSV "
+                    + "(username,email,password,roles[,firstName,lastName]; roles separados por |)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultado por fila en NDJSON y resumen final"),
+        @ApiResponse(responseCode = "400", description = "Archivo sin las columnas requeridas"),
+        @ApiResponse(responseCode = "403", description = "Acceso denegado: se requiere rol ADMIN")
+    })
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" },
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importUsers(
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        UserImportService.Format format = MediaType.APPLICATION_NDJSON
+                .isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? UserImportService.Format.NDJSON
+                : UserImportService.Format.CSV;
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+
+        // El import corre en este thread: mismo contexto de seguridad y errores de cabecera
+        // antes del primer write, todavía con status 400 vía GlobalExceptionHandler
+        UserImportSummary summary = userImportService.importUsers(request.getInputStream(), format,
+                authentication.getName(), result -> writeLine(out, result));
+        writeLine(out, summary);
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
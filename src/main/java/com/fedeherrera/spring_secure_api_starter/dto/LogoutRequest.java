@@ -0,0 +1,10 @@
+package com.fedeherrera.spring_secure_api_starter.dto;
+
+import lombok.Getter;
+
+@Getter
+public class LogoutRequest {
+    // Opcional: si viene, también se cierra la sesión (familia) de este refresh token
+    private String refreshToken;
+
+}
@@ -0,0 +1,17 @@
+package com.fedeherrera.spring_secure_api_starter.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lo mínimo para autenticar: una fila de users, sin joins a roles ni campos de auditoría.
+ * Los roles llegan como bitmask (ver RoleMask).
+ */
+public record UserAuthProjection(
+        Long id,
+        String username,
+        String password,
+        boolean enabled,
+        long credentialVersion,
+        LocalDateTime passwordChangedAt,
+        long roleMask) {
+}
@@ -0,0 +1,18 @@
+package com.fedeherrera.spring_secure_api_starter.dto;
+
+/**
+ * Resultado de una fila del import masivo (una línea NDJSON por fila en la respuesta).
+ */
+public record UserImportResult(long line, String username, Status status, String message) {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+
+    public static UserImportResult created(long line, String username) {
+        return new UserImportResult(line, username, Status.CREATED, null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.fedeherrera.spring_secure_api_starter.dto;
+
+/**
+ * Totales del import masivo; es la última línea de la respuesta.
+ */
+public record UserImportSummary(long total, long created, long rejected, long elapsedMillis) {
+}
@@ -0,0 +1,32 @@
+package com.fedeherrera.spring_secure_api_starter.entity;
+
+import java.util.Collection;
+
+/**
+ * Roles como bitmask en users.role_mask: el rol con id N ocupa el bit N - 1.
+ * Alcanza para 63 roles (el bit de signo no se usa).
+ */
+public final class RoleMask {
+
+    public static final int MAX_ROLE_ID = 63;
+
+    private RoleMask() {
+    }
+
+    public static long bit(Long roleId) {
+        if (roleId == null || roleId < 1 || roleId > MAX_ROLE_ID) {
+            throw new IllegalArgumentException("role_id fuera del rango del bitmask: " + roleId);
+        }
+        return 1L << (roleId - 1);
+    }
+
+    public static long of(Collection<Role> roles) {
+        long mask = 0;
+        if (roles != null) {
+            for (Role role : roles) {
+                mask |= bit(role.getId());
+            }
+        }
+        return mask;
+    }
+}
@@ -4,6 +4,9 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 import com.fedeherrera.spring_secure_api_starter.dto.AuthProviderEnum;
@@ -42,6 +45,11 @@ public class User extends AuditableEntity {
 
     private LocalDateTime passwordChangedAt;
 
+    // Se incrementa en cada cambio de credenciales; viaja en el claim "cv" de los JWT
+    @Builder.Default
+    @Column(name = "credential_version", nullable = false)
+    private long credentialVersion = 0;
+
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private AuthProviderEnum provider = AuthProviderEnum.LOCAL;
@@ -53,4 +61,51 @@ public class User extends AuditableEntity {
             inverseJoinColumns = @JoinColumn(name = "role_id")
     )
     private Set<Role> roles;
+
+    // Copia de roles como bitmask (RoleMask) para la lectura de autenticación; se deriva de roles
+    @Builder.Default
+    @Setter(AccessLevel.NONE)
+    @Column(name = "role_mask", nullable = false)
+    private long roleMask = 0;
+
+    // Solo lectura: los cambios pasan por setRoles/addRole/removeRole, que recalculan roleMask
+    public Set<Role> getRoles() {
+        return roles == null ? Set.of() : Collections.unmodifiableSet(roles);
+    }
+
+    public void setRoles(Set<Role> roles) {
+        long mask = RoleMask.of(roles);
+        // El claim "roles" de los tokens ya emitidos queda viejo: en un usuario existente se invalidan
+        if (id != null && mask != roleMask) {
+            credentialVersion++;
+        }
+        this.roles = roles;
+        this.roleMask = mask;
+    }
+
+    // Role no define equals: se compara por id
+    public void addRole(Role role) {
+        if (roles != null && roles.stream().anyMatch(r -> Objects.equals(r.getId(), role.getId()))) {
+            return;
+        }
+        Set<Role> updated = roles == null ? new HashSet<>() : new HashSet<>(roles);
+        updated.add(role);
+        setRoles(updated);
+    }
+
+    public void removeRole(Role role) {
+        if (roles == null) {
+            return;
+        }
+        Set<Role> updated = new HashSet<>(roles);
+        if (updated.removeIf(r -> Objects.equals(r.getId(), role.getId()))) {
+            setRoles(updated);
+        }
+    }
+
+    @PrePersist
+    @PreUpdate
+    void syncRoleMask() {
+        roleMask = RoleMask.of(roles);
+    }
 }
@@ -1,6 +1,5 @@
 package com.fedeherrera.spring_secure_api_starter.entity;
 
-import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -9,36 +8,72 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Snapshot inmutable del usuario autenticado.
+ * Se arma desde la entidad User (login / DB) o desde los claims de un JWT (modo stateless),
+ * así no queda una entidad gestionada colgando del SecurityContext.
+ */
 @Getter
-@ToString
-@EqualsAndHashCode
-@Data   
+@ToString(exclude = "password")
+@EqualsAndHashCode(of = {"id", "username", "credentialVersion"})
 public class UserPrincipal implements UserDetails {
 
-    private final User user;
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final boolean enabled;
+    private final long credentialVersion;
+    private final LocalDateTime passwordChangedAt;
+    private final Set<GrantedAuthority> authorities;
 
     public UserPrincipal(User user) {
-        this.user = user;
+        this(user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.isEnabled(),
+                user.getCredentialVersion(),
+                user.getPasswordChangedAt(),
+                user.getRoles() == null ? List.of() : user.getRoles().stream().map(Role::getName).toList());
     }
 
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toSet());
+    public UserPrincipal(Long id, String username, String password, boolean enabled,
+                         long credentialVersion, LocalDateTime passwordChangedAt,
+                         Collection<String> roleNames) {
+        this(id, username, password, enabled, credentialVersion, passwordChangedAt,
+                roleNames.stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.<GrantedAuthority>toUnmodifiableSet()));
     }
 
-    @Override
-    public String getPassword() {
-        return user.getPassword();
+    // Con authorities ya armadas (las instancias compartidas de RoleCatalog)
+    public UserPrincipal(Long id, String username, String password, boolean enabled,
+                         long credentialVersion, LocalDateTime passwordChangedAt,
+                         Set<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled;
+        this.credentialVersion = credentialVersion;
+        this.passwordChangedAt = passwordChangedAt;
+        this.authorities = Set.copyOf(authorities);
     }
 
-    @Override
-    public String getUsername() {
-        return user.getUsername();
+    public List<String> getRoleNames() {
+        return authorities.stream().map(GrantedAuthority::getAuthority).toList();
+    }
+
+    // Rol "principal" que se informa en LoginResponse
+    public String getPrimaryRole() {
+        return authorities.stream()
+                .findFirst()
+                .map(GrantedAuthority::getAuthority)
+                .orElse("ROLE_USER");
     }
 
     @Override
@@ -55,9 +90,4 @@ public class UserPrincipal implements UserDetails {
     public boolean isCredentialsNonExpired() {
         return true;
     }
-
-    @Override
-    public boolean isEnabled() {
-        return user.isEnabled();
-    }
 }
@@ -1,5 +1,6 @@
 package com.fedeherrera.spring_secure_api_starter.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -7,8 +8,11 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.fedeherrera.spring_secure_api_starter.dto.ErrorResponse;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventType;
 
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
@@ -16,13 +20,18 @@ import java.util.HashMap;
 import java.util.Map;
 @RestControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    // 4xx y 503 son tráfico esperable bajo ataque: se agregan en vez de loguear cada uno
+    private final SecurityEventAggregator securityEvents;
+
     // 🔒 Errores de validación (@Valid)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationErrors(MethodArgumentNotValidException ex, HttpServletRequest request) {
 
-        log.error("Error detectado en el endpoint [{}]: {}", request.getServletPath(), ex.getMessage());
+        securityEvents.record(SecurityEventType.REQUEST_REJECTED, "VALIDATION", request,
+                ex.getBindingResult().getFieldErrorCount() + " campos inválidos");
 
         Map<String, String> errors = new HashMap<>();
         ex.getBindingResult().getFieldErrors().forEach(error -> 
@@ -45,7 +54,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({RegistrationException.class, AuthException.class})
     public ResponseEntity<ErrorResponse> handleBusinessExceptions(RuntimeException ex, HttpServletRequest request) {
 
-        log.error("Error detectado en el endpoint [{}]: {}", request.getServletPath(), ex.getMessage());
+        securityEvents.record(SecurityEventType.REQUEST_REJECTED, ex.getClass().getSimpleName(), request, ex.getMessage());
 
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now().toString())
@@ -58,6 +67,25 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    // ⏳ Servidor saturado (ej. pool de hashing lleno): el cliente puede reintentar
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> handleServiceBusy(ServiceBusyException ex, HttpServletRequest request) {
+
+        securityEvents.record(SecurityEventType.SERVICE_BUSY, ex.getClass().getSimpleName(), request, ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now().toString())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getServletPath())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
     // 🔒 Captura cualquier excepción no manejada (El "Catch-All")
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleAllExceptions(Exception ex, HttpServletRequest request) {
@@ -0,0 +1,15 @@
+package com.fedeherrera.spring_secure_api_starter.exception;
+
+/**
+ * El servidor está saturado y rechaza el trabajo en lugar de encolarlo (se responde 503).
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+
+    public ServiceBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
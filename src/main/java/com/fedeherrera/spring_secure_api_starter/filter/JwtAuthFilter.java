@@ -1,5 +1,11 @@
 package com.fedeherrera.spring_secure_api_starter.filter;
 
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventType;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.service.AccessTokenRevocationService;
+import com.fedeherrera.spring_secure_api_starter.service.CredentialVersionRegistry;
 import com.fedeherrera.spring_secure_api_starter.service.JwtService;
 import com.fedeherrera.spring_secure_api_starter.service.UserDetailsServiceImpl;
 
@@ -9,8 +15,8 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,14 +25,21 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
-@Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsServiceImpl userDetailsService;
+    private final CredentialVersionRegistry credentialVersionRegistry;
+    private final AccessTokenRevocationService revocationService;
+    private final SecurityEventAggregator securityEvents;
+
+    // Modo stateless: la autenticación se arma con los claims del token, sin ir a la DB
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
 
     @Override
     protected void doFilterInternal(
@@ -36,7 +49,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         // 1. Verificación rápida del Header
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -48,30 +60,55 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         try {
             // 2. VALIDACIÓN MATEMÁTICA PRIMERO (Firma y Expiración)
-            // Este método NO debe ir a la DB, solo usar la Secret Key
-            if (jwtService.isTokenSignatureValid(jwt)) {
+            // Una sola verificación de firma por request, sin ir a la DB
+            ValidatedToken token = jwtService.validate(jwt);
 
-                userEmail = jwtService.extractUsername(jwt);
+            if (!token.isValid()) {
+                securityEvents.record(SecurityEventType.INVALID_TOKEN, token.failureReason().name(), request, null);
+            } else if (jwtService.isRefreshToken(token)) {
+                // Un refresh token solo se canjea en /auth/refresh-token, nunca autentica requests
+                securityEvents.record(SecurityEventType.INVALID_TOKEN, "REFRESH_AS_BEARER", request, null);
+            } else if (revocationService.isRevoked(token)) {
+                // Bloom filter en memoria: solo un positivo consulta la DB
+                securityEvents.record(SecurityEventType.INVALID_TOKEN, "REVOKED", request, "jti " + token.jti());
+            } else {
+                final String userEmail = token.subject();
 
                 if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                    // 3. SOLO SI EL TOKEN ES VÁLIDO, VAMOS A LA DB
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                    if (jwtService.isTokenValid(jwt, userDetails)) {
-                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                    Optional<UserPrincipal> stateless = statelessEnabled
+                            ? jwtService.toPrincipal(token)
+                            : Optional.empty();
+
+                    if (stateless.isPresent()) {
+                        // 3a. Sin DB: solo se valida la versión de credenciales en memoria
+                        UserPrincipal principal = stateless.get();
+                        if (credentialVersionRegistry.isCurrent(principal.getId(), principal.getCredentialVersion())) {
+                            authenticate(request, principal);
+                        }
+                    } else {
+                        // 3b. SOLO SI EL TOKEN ES VÁLIDO, VAMOS A LA DB
+                        UserDetails userDetails = this.userDetailsService.loadPrincipal(userEmail);
+                        if (jwtService.isTokenValid(token, userDetails)) {
+                            authenticate(request, userDetails);
+                        }
                     }
                 }
             }
         } catch (Exception e) {
-            // Si la firma es falsa, el log nos avisará sin haber tocado la DB
-            log.error("Token inválido o corrupto detectado: {}", e.getMessage());
+            // Si la firma es falsa, el evento queda registrado sin haber tocado la DB
+            securityEvents.record(SecurityEventType.INVALID_TOKEN, e.getClass().getSimpleName(), request, e.getMessage());
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
@@ -12,6 +12,10 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fedeherrera.spring_secure_api_starter.dto.ErrorResponse;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.ClientAddressKey;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitPolicy;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventType;
 import com.fedeherrera.spring_secure_api_starter.service.RateLimitService;
 
 import io.jsonwebtoken.io.IOException;
@@ -33,18 +37,21 @@ public class RateLimitFilter extends OncePerRequestFilter {
     @Autowired
     private ObjectMapper objectMapper; // Para convertir el DTO a JSON
 
+    @Autowired
+    private SecurityEventAggregator securityEvents;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                     HttpServletResponse response, 
                                     FilterChain filterChain) throws ServletException, IOException {
         
         String path = request.getRequestURI();
-        String ip = getClientIp(request);
 
         // Definimos el límite (ej. 5 para login, 50 para el resto)
-        int limit = (path.startsWith("/auth/login")) ? 5 : 50;
+        RateLimitPolicy policy = RateLimitPolicy.forPath(path);
 
-        if (rateLimitService.resolveBucket(ip, limit).tryConsume(1)) {
+        // La IP se empaqueta en un long: no se crean Strings por request
+        if (rateLimitService.tryConsume(ClientAddressKey.of(request), policy)) {
             try {
                 filterChain.doFilter(request, response);
             } catch (java.io.IOException e) {
@@ -53,8 +60,9 @@ public class RateLimitFilter extends OncePerRequestFilter {
                 log.error("Error filter rating limit " + e.getMessage());
             }
         } else {
-            // LOG DEL ATAQUE/EXCESO
-            log.warn("Rate limit excedido para la IP: {} en el path: {}. Límite: {}", ip, path, limit);
+            // LOG DEL ATAQUE/EXCESO (agregado: en una ola de requests solo se loguean los primeros)
+            securityEvents.record(SecurityEventType.RATE_LIMITED, policy.name(), request,
+                    "límite " + policy.getCapacity() + "/min");
             
             sendCustomError(request, response);
         }
@@ -84,9 +92,4 @@ public class RateLimitFilter extends OncePerRequestFilter {
             e.printStackTrace();
         }
     }
-
-    private String getClientIp(HttpServletRequest request) {
-        String xf = request.getHeader("X-Forwarded-For");
-        return (xf == null) ? request.getRemoteAddr() : xf.split(",")[0];
-    }
 }
\ No newline at end of file
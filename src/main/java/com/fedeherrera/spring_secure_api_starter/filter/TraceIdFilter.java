@@ -25,8 +25,7 @@ public class TraceIdFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
-        // Generamos un ID corto para que sea fácil de leer en los logs
-        String traceId = UUID.randomUUID().toString().split("-")[0];
+        String traceId = newTraceId();
         
         // Lo guardamos en el contexto de logs (MDC)
         MDC.put(TRACE_ID_KEY, traceId);
@@ -41,4 +40,9 @@ public class TraceIdFilter extends OncePerRequestFilter {
             MDC.remove(TRACE_ID_KEY);
         }
     }
+
+    // Generamos un ID corto para que sea fácil de leer en los logs
+    static String newTraceId() {
+        return UUID.randomUUID().toString().split("-")[0];
+    }
 }
\ No newline at end of file
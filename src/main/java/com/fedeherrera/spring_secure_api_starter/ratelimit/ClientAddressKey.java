@@ -0,0 +1,222 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Convierte la IP del cliente en una clave long, sin crear Strings intermedios.
+ * - IPv4: los 32 bits de la dirección con un prefijo fijo en la parte alta
+ * - IPv6: el prefijo /64 (un cliente IPv6 suele controlar la /64 completa)
+ * Lo que no se puede parsear cae en una única clave UNKNOWN (comparten balde).
+ */
+public final class ClientAddressKey {
+
+    public static final long UNKNOWN = 0xFFFF_FFFE_0000_0000L;
+
+    // ffff:ffff::/32 es espacio multicast: nunca es el prefijo de un cliente real
+    private static final long IPV4_TAG = 0xFFFF_FFFF_0000_0000L;
+
+    private ClientAddressKey() {
+    }
+
+    public static long of(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded != null) {
+            int comma = forwarded.indexOf(',');
+            return parse(forwarded, 0, comma < 0 ? forwarded.length() : comma);
+        }
+        String remote = request.getRemoteAddr();
+        return remote == null ? UNKNOWN : parse(remote, 0, remote.length());
+    }
+
+    public static long parse(CharSequence s) {
+        return parse(s, 0, s.length());
+    }
+
+    public static long parse(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start < end && s.charAt(start) == '[') {
+            int close = indexOf(s, ']', start, end);
+            if (close < 0) {
+                return UNKNOWN;
+            }
+            start++;
+            end = close;
+        }
+        int zone = indexOf(s, '%', start, end);
+        if (zone >= 0) {
+            end = zone;
+        }
+        if (start >= end) {
+            return UNKNOWN;
+        }
+
+        int colon = indexOf(s, ':', start, end);
+        if (colon < 0) {
+            long ipv4 = parseIpv4(s, start, end);
+            return ipv4 < 0 ? UNKNOWN : IPV4_TAG | ipv4;
+        }
+        if (indexOf(s, ':', colon + 1, end) < 0) {
+            // "a.b.c.d:puerto"
+            long ipv4 = parseIpv4(s, start, colon);
+            return ipv4 < 0 ? UNKNOWN : IPV4_TAG | ipv4;
+        }
+        return parseIpv6Prefix(s, start, end);
+    }
+
+    // Devuelve los 32 bits de la dirección o -1 si no es una IPv4 válida
+    private static long parseIpv4(CharSequence s, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                address = (address << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (address << 8) | value;
+    }
+
+    private static long parseIpv6Prefix(CharSequence s, int start, int end) {
+        int compressed = indexOfDoubleColon(s, start, end);
+        int headEnd = compressed < 0 ? end : compressed;
+        int tailStart = compressed < 0 ? end : compressed + 2;
+        if (compressed >= 0 && indexOfDoubleColon(s, tailStart - 1, end) >= 0) {
+            return UNKNOWN; // "::" solo puede aparecer una vez
+        }
+
+        int headGroups = countGroups(s, start, headEnd);
+        int tailGroups = countGroups(s, tailStart, end);
+        if (headGroups < 0 || tailGroups < 0) {
+            return UNKNOWN;
+        }
+        if (compressed < 0 ? headGroups != 8 : headGroups + tailGroups > 7) {
+            return UNKNOWN;
+        }
+
+        // Solo interesan las posiciones 0..3 (los primeros 64 bits)
+        long prefix = accumulate(s, start, headEnd, 0, 0L);
+        prefix = accumulate(s, tailStart, end, 8 - tailGroups, prefix);
+
+        // "::ffff:a.b.c.d" (IPv4 mapeada): se trata como la IPv4, si no todas caerían en ::/64
+        if (prefix == 0) {
+            int lastGroup = lastIndexOf(s, ':', start, end) + 1;
+            if (indexOf(s, '.', lastGroup, end) >= 0) {
+                return IPV4_TAG | parseIpv4(s, lastGroup, end);
+            }
+        }
+        return prefix;
+    }
+
+    // Cantidad de grupos de 16 bits en el rango (una IPv4 embebida cuenta 2), -1 si es inválido
+    private static int countGroups(CharSequence s, int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        int groups = 0;
+        int groupStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || s.charAt(i) == ':') {
+                int length = i - groupStart;
+                if (length == 0) {
+                    return -1;
+                }
+                if (i == to && indexOf(s, '.', groupStart, i) >= 0) {
+                    if (parseIpv4(s, groupStart, i) < 0) {
+                        return -1;
+                    }
+                    groups += 2;
+                } else {
+                    if (length > 4) {
+                        return -1;
+                    }
+                    for (int j = groupStart; j < i; j++) {
+                        if (Character.digit(s.charAt(j), 16) < 0) {
+                            return -1;
+                        }
+                    }
+                    groups++;
+                }
+                groupStart = i + 1;
+            }
+        }
+        return groups;
+    }
+
+    // Rango ya validado por countGroups
+    private static long accumulate(CharSequence s, int from, int to, int position, long prefix) {
+        if (from == to) {
+            return prefix;
+        }
+        int groupStart = from;
+        for (int i = from; i <= to && position < 4; i++) {
+            if (i == to || s.charAt(i) == ':') {
+                if (i == to && indexOf(s, '.', groupStart, i) >= 0) {
+                    long ipv4 = parseIpv4(s, groupStart, i);
+                    prefix = withGroup(prefix, position, (int) (ipv4 >>> 16));
+                    prefix = withGroup(prefix, position + 1, (int) (ipv4 & 0xFFFF));
+                } else {
+                    int value = 0;
+                    for (int j = groupStart; j < i; j++) {
+                        value = (value << 4) | Character.digit(s.charAt(j), 16);
+                    }
+                    prefix = withGroup(prefix, position, value);
+                }
+                position++;
+                groupStart = i + 1;
+            }
+        }
+        return prefix;
+    }
+
+    private static long withGroup(long prefix, int position, int value) {
+        if (position > 3) {
+            return prefix;
+        }
+        return prefix | ((long) value << (16 * (3 - position)));
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence s, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfDoubleColon(CharSequence s, int from, int to) {
+        for (int i = Math.max(from, 0); i + 1 < to; i++) {
+            if (s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
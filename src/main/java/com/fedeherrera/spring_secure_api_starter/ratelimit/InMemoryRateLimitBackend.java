@@ -0,0 +1,49 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitBackend implements RateLimitBackend {
+
+    // Un store por política: la clave es solo la IP empaquetada (ver ClientAddressKey)
+    private final Map<RateLimitPolicy, LongBucketStore> stores = new EnumMap<>(RateLimitPolicy.class);
+
+    public InMemoryRateLimitBackend(
+            @Value("${app.rate-limit.max-entries:100000}") int maxEntries,
+            @Value("${app.rate-limit.idle-timeout:2m}") Duration idleTimeout) {
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            stores.put(policy, new LongBucketStore(maxEntries, idleTimeout, () -> createNewBucket(policy)));
+        }
+    }
+
+    @Override
+    public boolean tryConsume(long clientKey, RateLimitPolicy policy) {
+        return resolveBucket(clientKey, policy).tryConsume(1);
+    }
+
+    public Bucket resolveBucket(long clientKey, RateLimitPolicy policy) {
+        return stores.get(policy).resolve(clientKey);
+    }
+
+    public LongBucketStore store(RateLimitPolicy policy) {
+        return stores.get(policy);
+    }
+
+    private Bucket createNewBucket(RateLimitPolicy policy) {
+        int limit = policy.getCapacity();
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(limit, Refill.intervally(limit, policy.getRefillPeriod())))
+                .build();
+    }
+}
@@ -0,0 +1,216 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Baldes compartidos por todas las réplicas en la tabla rate_limit_bucket.
+ *
+ * Cada fila guarda los tokens que quedan en la ventana actual y una versión. Para
+ * consumir se lee la fila y se escribe con UPDATE ... WHERE version = ? (compare-and-swap):
+ * si otra réplica escribió en el medio, no se actualiza nada y se reintenta.
+ *
+ * Para no ir a la DB en cada request, cada réplica reserva varios tokens de una vez
+ * (prefetch) y los gasta en memoria hasta el fin de la ventana. Cuando la DB responde
+ * que no quedan tokens, la réplica rechaza localmente hasta que la ventana se renueve.
+ * Los tokens reservados y no usados se pierden: el error siempre es rechazar de más,
+ * nunca dejar pasar más que la capacidad de la política.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "jdbc")
+public class JdbcRateLimitBackend implements RateLimitBackend {
+
+    private static final int MAX_CAS_ATTEMPTS = 8;
+    private static final int PURGE_BATCH_SIZE = 1000;
+    // Una réplica nunca reserva más de 1/5 de la capacidad, para que las demás puedan atender al cliente
+    private static final int MAX_PREFETCH_SHARE = 5;
+
+    private static final String SELECT_BUCKET =
+            "SELECT tokens, window_start, version FROM rate_limit_bucket WHERE policy = ? AND client_key = ?";
+    private static final String INSERT_BUCKET =
+            "INSERT INTO rate_limit_bucket (policy, client_key, tokens, window_start, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String UPDATE_BUCKET =
+            "UPDATE rate_limit_bucket SET tokens = ?, window_start = ?, version = version + 1 "
+                    + "WHERE policy = ? AND client_key = ? AND version = ?";
+    private static final String DELETE_STALE =
+            "DELETE FROM rate_limit_bucket WHERE window_start < ? LIMIT " + PURGE_BATCH_SIZE;
+
+    private static final RowMapper<BucketRow> ROW_MAPPER = (rs, rowNum) ->
+            new BucketRow(rs.getInt("tokens"), rs.getLong("window_start"), rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final Map<RateLimitPolicy, Cache<Long, Lease>> leases = new EnumMap<>(RateLimitPolicy.class);
+    private final Map<RateLimitPolicy, Integer> prefetch = new EnumMap<>(RateLimitPolicy.class);
+
+    @Autowired
+    public JdbcRateLimitBackend(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.rate-limit.max-entries:100000}") int maxEntries,
+            @Value("${app.rate-limit.jdbc.prefetch:10}") int prefetchSize) {
+        this(jdbcTemplate, maxEntries, prefetchSize, Clock.systemUTC());
+    }
+
+    JdbcRateLimitBackend(JdbcTemplate jdbcTemplate, int maxEntries, int prefetchSize, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            // Una reserva nunca sobrevive a su ventana
+            leases.put(policy, Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterWrite(policy.getRefillPeriod())
+                    .build());
+            prefetch.put(policy, Math.max(1, Math.min(prefetchSize, policy.getCapacity() / MAX_PREFETCH_SHARE)));
+        }
+    }
+
+    @Override
+    public boolean tryConsume(long clientKey, RateLimitPolicy policy) {
+        long now = clock.millis();
+        Cache<Long, Lease> policyLeases = leases.get(policy);
+
+        Lease lease = policyLeases.getIfPresent(clientKey);
+        if (lease != null) {
+            Boolean local = lease.tryConsume(now);
+            if (local != null) {
+                return local;
+            }
+        }
+
+        Grant grant;
+        try {
+            grant = acquire(policy, clientKey, prefetch.get(policy), now);
+        } catch (DataAccessException e) {
+            // Sin DB el resto de la API tampoco responde: no sumamos un segundo punto de falla
+            log.warn("Rate limit JDBC no disponible, se deja pasar el request: {}", e.getMessage());
+            return true;
+        }
+
+        if (grant.windowEnd() > now) {
+            policyLeases.put(clientKey, new Lease(grant.windowEnd(), Math.max(0, grant.tokens() - 1), grant.tokens() == 0));
+        }
+        return grant.tokens() > 0;
+    }
+
+    /**
+     * Reserva hasta {@code want} tokens del balde compartido. Devuelve cuántos se obtuvieron
+     * y hasta cuándo valen (fin de la ventana actual).
+     */
+    Grant acquire(RateLimitPolicy policy, long clientKey, int want, long now) {
+        int capacity = policy.getCapacity();
+        long period = policy.getRefillPeriod().toMillis();
+
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            List<BucketRow> rows = jdbcTemplate.query(SELECT_BUCKET, ROW_MAPPER, policy.name(), clientKey);
+
+            if (rows.isEmpty()) {
+                int granted = Math.min(want, capacity);
+                try {
+                    jdbcTemplate.update(INSERT_BUCKET, policy.name(), clientKey, capacity - granted, now);
+                    return new Grant(granted, now + period);
+                } catch (DuplicateKeyException e) {
+                    continue; // otra réplica creó la fila primero
+                }
+            }
+
+            BucketRow row = rows.get(0);
+            long windowStart = row.windowStart();
+            int tokens = row.tokens();
+            if (now - windowStart >= period) {
+                // Recarga completa por intervalos, igual que Refill.intervally del backend en memoria
+                windowStart += (now - windowStart) / period * period;
+                tokens = capacity;
+            }
+
+            int granted = Math.min(want, tokens);
+            if (granted == 0) {
+                return new Grant(0, windowStart + period); // balde vacío: no hace falta escribir
+            }
+            int updated = jdbcTemplate.update(UPDATE_BUCKET,
+                    tokens - granted, windowStart, policy.name(), clientKey, row.version());
+            if (updated == 1) {
+                return new Grant(granted, windowStart + period);
+            }
+        }
+
+        // Contención sostenida sobre la misma fila: se rechaza sin recordar el resultado
+        return new Grant(0, now);
+    }
+
+    /**
+     * Una fila cuya ventana terminó equivale a un balde lleno: borrarla no cambia el resultado.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.jdbc.purge-interval:5m}")
+    public void purgeStaleBuckets() {
+        long longestPeriod = 0;
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            longestPeriod = Math.max(longestPeriod, policy.getRefillPeriod().toMillis());
+        }
+        long cutoff = clock.millis() - longestPeriod;
+
+        int deleted;
+        int total = 0;
+        do {
+            deleted = jdbcTemplate.update(DELETE_STALE, cutoff);
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+
+        if (total > 0) {
+            log.debug("Rate limit JDBC: {} baldes vencidos eliminados", total);
+        }
+    }
+
+    record Grant(int tokens, long windowEnd) {
+    }
+
+    private record BucketRow(int tokens, long windowStart, long version) {
+    }
+
+    /**
+     * Tokens reservados por esta réplica para un cliente, válidos hasta windowEnd.
+     */
+    private static final class Lease {
+
+        private final long windowEnd;
+        private final boolean exhausted;
+        private int remaining;
+
+        Lease(long windowEnd, int remaining, boolean exhausted) {
+            this.windowEnd = windowEnd;
+            this.remaining = remaining;
+            this.exhausted = exhausted;
+        }
+
+        /**
+         * true/false si se puede decidir sin la DB; null si hay que reservar más tokens.
+         */
+        synchronized Boolean tryConsume(long now) {
+            if (now >= windowEnd) {
+                return null;
+            }
+            if (remaining > 0) {
+                remaining--;
+                return Boolean.TRUE;
+            }
+            return exhausted ? Boolean.FALSE : null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import io.github.bucket4j.Bucket;
+
+/**
+ * Mapa long -> Bucket acotado, pensado para el camino caliente del rate limit:
+ * - La búsqueda no crea objetos (clave primitiva, open addressing, sin boxing)
+ * - Tope duro de entradas: nunca crece más allá de maxEntries
+ * - Los baldes sin uso por más de idleTimeout se eliminan de a poco en cada alta
+ * - Si está lleno, se desaloja la entrada menos usada de una pequeña muestra (LRU aproximado)
+ *
+ * Con idleTimeout >= período de recarga, un balde inactivo ya está lleno: eliminarlo
+ * no cambia el resultado del rate limit.
+ */
+public class LongBucketStore {
+
+    private static final int SWEEP_STEP = 4;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long idleNanos;
+    private final Supplier<Bucket> bucketFactory;
+
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    public LongBucketStore(int maxEntries, Duration idleTimeout, Supplier<Bucket> bucketFactory) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries debe ser >= 1");
+        }
+        int segmentCount = 1;
+        while (segmentCount < 64 && maxEntries / (segmentCount * 2) >= 1024) {
+            segmentCount <<= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(Math.max(1, maxEntries / segmentCount));
+        }
+        this.segmentMask = segmentCount - 1;
+        this.idleNanos = idleTimeout.toNanos();
+        this.bucketFactory = bucketFactory;
+    }
+
+    public Bucket resolve(long key) {
+        long hash = mix(key);
+        Segment segment = segments[(int) (hash >>> 58) & segmentMask];
+        return segment.getOrCreate(key, (int) hash, System.nanoTime());
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public long capacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.capacity;
+        }
+        return capacity;
+    }
+
+    public long idleEvictions() {
+        return idleEvictions.sum();
+    }
+
+    public long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    // Finalizador de MurmurHash3: las IPs consecutivas quedan bien repartidas
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] keys;
+        private final Bucket[] buckets;
+        private final long[] lastAccess;
+        private final int capacity;
+        private final int mask;
+        private volatile int size;
+        private int cursor;
+
+        Segment(int capacity) {
+            int length = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            this.keys = new long[length];
+            this.buckets = new Bucket[length];
+            this.lastAccess = new long[length];
+            this.capacity = capacity;
+            this.mask = length - 1;
+        }
+
+        Bucket getOrCreate(long key, int hash, long now) {
+            lock.lock();
+            try {
+                int i = hash & mask;
+                while (buckets[i] != null) {
+                    if (keys[i] == key) {
+                        lastAccess[i] = now;
+                        return buckets[i];
+                    }
+                    i = (i + 1) & mask;
+                }
+
+                sweepIdle(now);
+                if (size >= capacity) {
+                    evictOldest();
+                }
+
+                // Las bajas pueden haber corrido entradas: se busca de nuevo el hueco
+                i = hash & mask;
+                while (buckets[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                Bucket bucket = bucketFactory.get();
+                keys[i] = key;
+                buckets[i] = bucket;
+                lastAccess[i] = now;
+                size++;
+                return bucket;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void sweepIdle(long now) {
+            for (int step = 0; step < SWEEP_STEP; step++) {
+                int i = cursor;
+                if (buckets[i] != null && now - lastAccess[i] > idleNanos) {
+                    removeAt(i);
+                    idleEvictions.increment();
+                    // removeAt pudo mover otra entrada a este slot: se revisa en el próximo paso
+                } else {
+                    cursor = (i + 1) & mask;
+                }
+            }
+        }
+
+        private void evictOldest() {
+            int victim = -1;
+            int seen = 0;
+            for (int n = 0, i = cursor; n <= mask && seen < EVICTION_SAMPLE; n++, i = (i + 1) & mask) {
+                if (buckets[i] != null) {
+                    seen++;
+                    if (victim < 0 || lastAccess[i] - lastAccess[victim] < 0) {
+                        victim = i;
+                    }
+                }
+            }
+            removeAt(victim);
+            capacityEvictions.increment();
+        }
+
+        // Borrado con corrimiento hacia atrás (sin tombstones)
+        private void removeAt(int hole) {
+            int j = hole;
+            while (true) {
+                j = (j + 1) & mask;
+                if (buckets[j] == null) {
+                    break;
+                }
+                int home = (int) mix(keys[j]) & mask;
+                boolean stays = hole <= j
+                        ? hole < home && home <= j
+                        : hole < home || home <= j;
+                if (!stays) {
+                    keys[hole] = keys[j];
+                    buckets[hole] = buckets[j];
+                    lastAccess[hole] = lastAccess[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            buckets[hole] = null;
+            lastAccess[hole] = 0;
+            size--;
+        }
+    }
+}
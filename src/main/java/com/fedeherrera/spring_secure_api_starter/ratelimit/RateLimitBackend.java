@@ -0,0 +1,11 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+/**
+ * Dónde vive el estado de los baldes. Se elige con app.rate-limit.backend:
+ * - memory (default): un balde por JVM, el límite real es capacidad x réplicas
+ * - jdbc: baldes compartidos en MySQL, el límite es global al cluster
+ */
+public interface RateLimitBackend {
+
+    boolean tryConsume(long clientKey, RateLimitPolicy policy);
+}
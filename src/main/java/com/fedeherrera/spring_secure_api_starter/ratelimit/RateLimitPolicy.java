@@ -0,0 +1,32 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Políticas de rate limiting: capacidad del balde, recargado completo cada minuto.
+ */
+public enum RateLimitPolicy {
+
+    LOGIN(5),
+    API(50);
+
+    private static final Duration REFILL_PERIOD = Duration.ofMinutes(1);
+
+    private final int capacity;
+
+    RateLimitPolicy(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Duration getRefillPeriod() {
+        return REFILL_PERIOD;
+    }
+
+    public static RateLimitPolicy forPath(String path) {
+        return path.startsWith("/auth/login") ? LOGIN : API;
+    }
+}
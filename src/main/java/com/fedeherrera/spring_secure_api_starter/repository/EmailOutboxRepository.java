@@ -0,0 +1,43 @@
+package com.fedeherrera.spring_secure_api_starter.repository;
+
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage;
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage.Status;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    /**
+     * Mensajes vencidos, bloqueados para esta transacción. El timeout -2 es SKIP LOCKED:
+     * varias réplicas pueden despachar a la vez sin tomar los mismos mensajes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select m from EmailOutboxMessage m where m.status = :status and m.nextAttemptAt <= :now order by m.nextAttemptAt")
+    List<EmailOutboxMessage> findDueForUpdate(@Param("status") Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(Status status);
+
+    /**
+     * Borra hasta {@code limit} mensajes SENT o DEAD creados antes de {@code cutoff}
+     * en una sola sentencia (y una transacción por lote).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE status IN ('SENT', 'DEAD') AND created_at < :cutoff LIMIT :limit",
+            nativeQuery = true)
+    int deleteFinishedBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,7 +1,10 @@
 package com.fedeherrera.spring_secure_api_starter.repository;
 
+import com.fedeherrera.spring_secure_api_starter.dto.UserAuthProjection;
 import com.fedeherrera.spring_secure_api_starter.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -9,9 +12,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    // Lectura de autenticación: una fila por el índice único de username, sin joins a roles
+    @Query("select new com.fedeherrera.spring_secure_api_starter.dto.UserAuthProjection("
+            + "u.id, u.username, u.password, u.enabled, u.credentialVersion, u.passwordChangedAt, u.roleMask) "
+            + "from User u where u.username = :username")
+    Optional<UserAuthProjection> findAuthByUsername(@Param("username") String username);
+
     Optional<User> findByEmail(String email);
 
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
+
+    @Query("select u.credentialVersion from User u where u.id = :id")
+    Optional<Long> findCredentialVersionById(@Param("id") Long id);
 }
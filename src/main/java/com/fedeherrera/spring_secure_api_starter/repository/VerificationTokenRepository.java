@@ -1,14 +1,43 @@
 package com.fedeherrera.spring_secure_api_starter.repository;
 
 import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken;
+import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken.TokenType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
 
-    Optional<VerificationToken> findByToken(String token);
+    /**
+     * Usuario dueño de un token vigente del tipo pedido, sin cargar la entidad.
+     */
+    @Query("select t.user.id from VerificationToken t "
+            + "where t.tokenHash = :hash and t.type = :type and t.expiresAt > :now")
+    Optional<Long> findValidUserId(@Param("hash") byte[] tokenHash, @Param("type") TokenType type,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Borrado condicional: devuelve 1 solo para quien efectivamente consumió el token.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from VerificationToken t "
+            + "where t.tokenHash = :hash and t.type = :type and t.expiresAt > :now")
+    int deleteValid(@Param("hash") byte[] tokenHash, @Param("type") TokenType type,
+            @Param("now") LocalDateTime now);
 
     void deleteByUserId(Long userId);
-    void deleteByToken(String token);
+
+    /**
+     * Borra hasta {@code limit} tokens vencidos en una sola sentencia (y una transacción por lote).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM verification_tokens WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
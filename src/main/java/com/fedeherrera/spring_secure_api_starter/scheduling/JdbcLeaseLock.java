@@ -0,0 +1,53 @@
+package com.fedeherrera.spring_secure_api_starter.scheduling;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lock con vencimiento en la tabla scheduler_lock, para que una tarea programada corra en
+ * una sola réplica a la vez. Si la réplica que lo tiene muere, el lock se libera solo al
+ * pasar locked_until, así que el lease tiene que ser mayor que la duración de la tarea.
+ */
+@Component
+public class JdbcLeaseLock {
+
+    private static final String TAKE_EXPIRED =
+            "UPDATE scheduler_lock SET locked_until = ?, locked_by = ? WHERE name = ? AND locked_until <= ?";
+    private static final String CREATE =
+            "INSERT INTO scheduler_lock (name, locked_until, locked_by) VALUES (?, ?, ?)";
+    private static final String RELEASE =
+            "UPDATE scheduler_lock SET locked_until = ? WHERE name = ? AND locked_by = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+
+    public JdbcLeaseLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    public boolean tryAcquire(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(lease);
+
+        if (jdbcTemplate.update(TAKE_EXPIRED, until, owner, name, now) == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(CREATE, name, until, owner);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false; // otra réplica lo tiene
+        }
+    }
+
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE, LocalDateTime.now(), name, owner);
+    }
+}
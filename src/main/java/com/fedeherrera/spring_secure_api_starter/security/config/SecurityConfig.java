@@ -8,10 +8,17 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.fedeherrera.spring_secure_api_starter.config.PasswordHashingProperties;
 import com.fedeherrera.spring_secure_api_starter.filter.JwtAuthFilter;
 import com.fedeherrera.spring_secure_api_starter.filter.RateLimitFilter;
 import com.fedeherrera.spring_secure_api_starter.security.exception.CustomAccessDeniedHandler;
 import com.fedeherrera.spring_secure_api_starter.security.exception.JwtAuthenticationEntryPoint;
+import com.fedeherrera.spring_secure_api_starter.security.password.BCryptStrengthCalibrator;
+import com.fedeherrera.spring_secure_api_starter.security.password.OffloadingPasswordEncoder;
+import com.fedeherrera.spring_secure_api_starter.security.password.PasswordEncoders;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,7 +32,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 
@@ -94,9 +100,20 @@ public class SecurityConfig {
                 .build();
     }
 
+    /**
+     * BCrypt con prefijo de algoritmo (rehash transparente en el login) ejecutado en un pool
+     * acotado. El costo se fija con app.security.password-hashing.strength o se calibra al arrancar.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        int strength = properties.getStrength() > 0
+                ? properties.getStrength()
+                : BCryptStrengthCalibrator.calibrate(properties.getTargetLatency(),
+                        properties.getMinStrength(), properties.getMaxStrength());
+        Gauge.builder("auth.password.bcrypt.strength", () -> strength).register(meterRegistry);
+
+        return new OffloadingPasswordEncoder(PasswordEncoders.delegating(strength),
+                properties.getThreads(), properties.getQueueCapacity(), properties.getTimeout(), meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,159 @@
+package com.fedeherrera.spring_secure_api_starter.security.event;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrega eventos de seguridad (429, tokens inválidos, 401/403, 400) para que una ola de
+ * credential stuffing no convierta el logging en el costo dominante.
+ * - Cuenta en memoria por (tipo, IP, path, motivo) durante una ventana
+ * - Loguea tal cual solo los primeros rawPerWindow eventos de cada tipo por ventana
+ * - Al cerrar la ventana emite una línea de resumen por tipo con las claves más frecuentes
+ * - security.events{type, reason} en Micrometer cuenta todos, logueados o no (IP y path
+ *   quedan fuera de los tags para no explotar la cardinalidad)
+ * Pasadas maxKeys claves distintas en una ventana, el resto se acumula con IP y path "*".
+ */
+@Slf4j
+@Component
+public class SecurityEventAggregator {
+
+    private static final String OTHER = "*";
+
+    private final MeterRegistry meterRegistry;
+    private final int rawPerWindow;
+    private final int maxKeys;
+    private final int topKeys;
+    private final Duration window;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<SecurityEventType, Counter> suppressedCounters = new EnumMap<>(SecurityEventType.class);
+
+    private volatile Window current = new Window();
+
+    public SecurityEventAggregator(
+            MeterRegistry meterRegistry,
+            @Value("${app.security-events.window:1m}") Duration window,
+            @Value("${app.security-events.raw-per-window:20}") int rawPerWindow,
+            @Value("${app.security-events.max-keys:10000}") int maxKeys,
+            @Value("${app.security-events.top-keys:5}") int topKeys) {
+        this.meterRegistry = meterRegistry;
+        this.window = window;
+        this.rawPerWindow = rawPerWindow;
+        this.maxKeys = maxKeys;
+        this.topKeys = topKeys;
+        for (SecurityEventType type : SecurityEventType.values()) {
+            suppressedCounters.put(type, Counter.builder("security.events.suppressed")
+                    .description("Eventos de seguridad contados pero no logueados (solo en el resumen)")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(SecurityEventType type, String reason, HttpServletRequest request, String detail) {
+        record(type, reason, clientIp(request), request.getRequestURI(), detail);
+    }
+
+    public void record(SecurityEventType type, String reason, String ip, String path, String detail) {
+        if (reason == null) {
+            reason = "unknown";
+        }
+        counter(type, reason).increment();
+
+        Window open = current;
+        Key key = new Key(type, ip, path, reason);
+        LongAdder count = open.counts.get(key);
+        if (count == null) {
+            if (open.counts.size() >= maxKeys) {
+                key = new Key(type, OTHER, OTHER, reason);
+            }
+            count = open.counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+
+        if (open.raw.get(type).incrementAndGet() <= rawPerWindow) {
+            log.warn("Evento de seguridad {}: ip={} path={} motivo={} {}", type, ip, path, reason,
+                    detail == null ? "" : detail);
+        } else {
+            suppressedCounters.get(type).increment();
+        }
+    }
+
+    /**
+     * Cierra la ventana actual y loguea su resumen. También se llama al apagar.
+     */
+    @Scheduled(fixedDelayString = "${app.security-events.window:1m}", initialDelayString = "${app.security-events.window:1m}")
+    @PreDestroy
+    public void flush() {
+        Window closed = current;
+        current = new Window();
+        if (closed.counts.isEmpty()) {
+            return;
+        }
+
+        Map<SecurityEventType, Map<Key, Long>> byType = closed.counts.entrySet().stream()
+                .collect(Collectors.groupingBy(e -> e.getKey().type(),
+                        () -> new EnumMap<>(SecurityEventType.class),
+                        Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum())));
+
+        byType.forEach((type, counts) -> {
+            long total = counts.values().stream().mapToLong(Long::longValue).sum();
+            long suppressed = Math.max(0, closed.raw.get(type).get() - rawPerWindow);
+            String top = counts.entrySet().stream()
+                    .sorted(Map.Entry.<Key, Long>comparingByValue(Comparator.reverseOrder()))
+                    .limit(topKeys)
+                    .map(e -> e.getKey().ip() + " " + e.getKey().path() + " " + e.getKey().reason() + "=" + e.getValue())
+                    .collect(Collectors.joining(", "));
+            log.warn("Resumen de seguridad ({}): {} x{} en {} claves, {} sin loguear; top: {}",
+                    window, type, total, counts.size(), suppressed, top);
+        });
+    }
+
+    // Primera IP de X-Forwarded-For (la del cliente detrás del proxy) o la remota
+    public static String clientIp(HttpServletRequest request) {
+        String xf = request.getHeader("X-Forwarded-For");
+        if (xf == null) {
+            return request.getRemoteAddr();
+        }
+        int comma = xf.indexOf(',');
+        return (comma < 0 ? xf : xf.substring(0, comma)).trim();
+    }
+
+    private Counter counter(SecurityEventType type, String reason) {
+        return counters.computeIfAbsent(type.name() + '|' + reason, k -> Counter.builder("security.events")
+                .description("Eventos de seguridad por tipo y motivo")
+                .tag("type", type.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+
+    private record Key(SecurityEventType type, String ip, String path, String reason) {
+    }
+
+    private static final class Window {
+
+        private final Map<Key, LongAdder> counts = new ConcurrentHashMap<>();
+        private final Map<SecurityEventType, AtomicInteger> raw = new EnumMap<>(SecurityEventType.class);
+
+        private Window() {
+            for (SecurityEventType type : SecurityEventType.values()) {
+                raw.put(type, new AtomicInteger());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fedeherrera.spring_secure_api_starter.security.event;
+
+/**
+ * Categorías de eventos de seguridad que se agregan en vez de loguearse uno por uno.
+ */
+public enum SecurityEventType {
+
+    // 429 del RateLimitFilter
+    RATE_LIMITED,
+    // JWT con firma inválida, vencido, mal formado o revocado
+    INVALID_TOKEN,
+    // 401 del entry point
+    UNAUTHORIZED,
+    // 403 por roles insuficientes
+    ACCESS_DENIED,
+    // 400 por validación o reglas de negocio (credenciales inválidas, registro duplicado)
+    REQUEST_REJECTED,
+    // 503 por saturación (pool de hashing lleno)
+    SERVICE_BUSY
+}
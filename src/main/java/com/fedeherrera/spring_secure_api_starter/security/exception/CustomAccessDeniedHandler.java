@@ -3,10 +3,12 @@ package com.fedeherrera.spring_secure_api_starter.security.exception;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fedeherrera.spring_secure_api_starter.dto.ErrorResponse;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventType;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 
 import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
@@ -17,9 +19,11 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 
 @Component
-@Slf4j
+@RequiredArgsConstructor
 public class CustomAccessDeniedHandler implements AccessDeniedHandler {
 
+    private final SecurityEventAggregator securityEvents;
+
     @Override
     public void handle(HttpServletRequest request, 
                        HttpServletResponse response,
@@ -29,12 +33,9 @@ public class CustomAccessDeniedHandler implements AccessDeniedHandler {
         response.setStatus(HttpServletResponse.SC_FORBIDDEN); // Status 403
 
 
-        // 🔹 Logueamos el intento de acceso no autorizado
-        // Usamos .warn porque es una advertencia de seguridad
-        log.warn("Acceso no autorizado detectado: IP={}, Path={}, Error={}", 
-                 request.getRemoteAddr(), 
-                 request.getServletPath(), 
-                 accessDeniedException.getMessage());
+        // 🔹 Registramos el intento de acceso no autorizado (agregado por IP, path y motivo)
+        securityEvents.record(SecurityEventType.ACCESS_DENIED, accessDeniedException.getClass().getSimpleName(),
+                request, accessDeniedException.getMessage());
 
         ErrorResponse error = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now().toString())
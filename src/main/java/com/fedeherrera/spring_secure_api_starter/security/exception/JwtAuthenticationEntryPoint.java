@@ -10,27 +10,28 @@ import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fedeherrera.spring_secure_api_starter.dto.ErrorResponse;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventType;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 
 
 @Component
-@Slf4j
+@RequiredArgsConstructor
 public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    private final SecurityEventAggregator securityEvents;
+
     @Override
     public void commence(HttpServletRequest request, 
                          HttpServletResponse response,
                          AuthenticationException authException) throws IOException {
         
-// 🔹 Logueamos el intento de acceso no autorizado
-        // Usamos .warn porque es una advertencia de seguridad
-        log.warn("Acceso no autorizado detectado: IP={}, Path={}, Error={}", 
-                 request.getRemoteAddr(), 
-                 request.getServletPath(), 
-                 authException.getMessage());
+// 🔹 Registramos el intento de acceso no autorizado (agregado por IP, path y motivo)
+        securityEvents.record(SecurityEventType.UNAUTHORIZED, authException.getClass().getSimpleName(),
+                request, authException.getMessage());
 
         // 1. Definimos que la respuesta será JSON y con status 401 (Unauthorized)
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
@@ -0,0 +1,84 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.config.JwtProperties;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Anillo de claves HMAC, construido una sola vez al arrancar.
+ * La clave activa firma los tokens nuevos (con su "kid" en el header) y las
+ * claves retiradas solo se usan para verificar los tokens que siguen vivos.
+ */
+@Component
+@Slf4j
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private final String activeKeyId;
+    private final SecretKey activeKey;
+    private final Map<String, SecretKey> verificationKeys;
+
+    public JwtKeyRing(JwtProperties properties) {
+        this.activeKeyId = properties.getKeyId();
+        this.activeKey = decode(properties.getSecret());
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        keys.put(activeKeyId, activeKey);
+        for (JwtProperties.RetiredKey retired : properties.getRetiredKeys()) {
+            if (keys.putIfAbsent(retired.getKeyId(), decode(retired.getSecret())) != null) {
+                throw new IllegalStateException("kid de JWT duplicado: " + retired.getKeyId());
+            }
+        }
+        this.verificationKeys = Map.copyOf(keys);
+
+        log.info("Anillo de claves JWT inicializado. Clave activa: {}, claves aceptadas: {}",
+                activeKeyId, verificationKeys.keySet());
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKey getActiveKey() {
+        return activeKey;
+    }
+
+    // Lo invoca el JwtParser una vez por token, antes de verificar la firma
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolve(header.getKeyId());
+    }
+
+    public Key resolve(String keyId) {
+        // Tokens emitidos antes de introducir el kid: se verifican con la clave activa
+        if (keyId == null) {
+            return activeKey;
+        }
+        SecretKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("kid de JWT desconocido: " + keyId);
+        }
+        return key;
+    }
+
+    private static SecretKey decode(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("La clave JWT no puede estar vacía");
+        }
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+    }
+}
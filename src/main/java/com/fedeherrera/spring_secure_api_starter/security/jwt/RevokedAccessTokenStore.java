@@ -0,0 +1,75 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lista exacta de jti revocados (tabla revoked_access_token).
+ * Solo se consulta cuando el Bloom filter da positivo.
+ */
+@Component
+public class RevokedAccessTokenStore {
+
+    private static final String INSERT =
+            "INSERT INTO revoked_access_token (jti, user_id, expires_at, revoked_at) VALUES (?, ?, ?, ?)";
+    private static final String EXISTS =
+            "SELECT COUNT(*) FROM revoked_access_token WHERE jti = ?";
+    private static final String SELECT_REVOKED_SINCE =
+            "SELECT jti, expires_at FROM revoked_access_token WHERE revoked_at >= ? AND expires_at > ? AND expires_at <= ?";
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM revoked_access_token WHERE expires_at < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    @Autowired
+    public RevokedAccessTokenStore(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, Clock.systemDefaultZone());
+    }
+
+    RevokedAccessTokenStore(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Devuelve false si el jti ya estaba revocado (logout repetido o token de un solo uso ya canjeado).
+     */
+    public boolean revoke(String jti, Long userId, LocalDateTime expiresAt) {
+        try {
+            jdbcTemplate.update(INSERT, jti, userId, expiresAt, LocalDateTime.now(clock));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        Integer count = jdbcTemplate.queryForObject(EXISTS, Integer.class, jti);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Revocaciones hechas desde {@code since} cuyos tokens todavía no vencieron y vencen antes de
+     * {@code expiresBefore}. Las filas que vencen más tarde no son access tokens (ej. refresh tokens
+     * legacy ya canjeados) y se resuelven solo en la DB.
+     */
+    public void forEachRevokedSince(LocalDateTime since, LocalDateTime expiresBefore,
+            BiConsumer<String, LocalDateTime> consumer) {
+        jdbcTemplate.query(SELECT_REVOKED_SINCE,
+                rs -> {
+                    consumer.accept(rs.getString("jti"), rs.getTimestamp("expires_at").toLocalDateTime());
+                },
+                since, LocalDateTime.now(clock), expiresBefore);
+    }
+
+    public int deleteExpiredBatch(LocalDateTime now, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED, now, limit);
+    }
+}
@@ -0,0 +1,158 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter de jti revocados, partido en baldes por fecha de vencimiento del token.
+ *
+ * Un jti se agrega al balde que cubre su "exp", así la consulta mira un solo balde y,
+ * cuando todos los tokens de un balde vencieron, el balde se descarta entero (rotate):
+ * el filtro nunca se satura con revocaciones viejas.
+ *
+ * Un "no" es definitivo; un "sí" puede ser falso positivo y se confirma contra la DB.
+ * Lecturas y escrituras no toman locks (bits en un AtomicLongArray).
+ */
+public class RevokedTokenBloomFilter {
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int bitsPerBucket;
+    private final int hashFunctions;
+
+    // inicio del balde (epoch millis de "exp") -> filtro
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    public RevokedTokenBloomFilter(Duration bucketWidth, int expectedPerBucket, double falsePositiveRate, Clock clock) {
+        if (expectedPerBucket < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedPerBucket >= 1 y 0 < falsePositiveRate < 1");
+        }
+        this.clock = clock;
+        this.bucketMillis = Math.max(1, bucketWidth.toMillis());
+        // m = -n ln(p) / ln(2)^2, k = m/n ln(2)
+        long bits = (long) Math.ceil(-expectedPerBucket * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerBucket = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerBucket / expectedPerBucket * Math.log(2)));
+    }
+
+    public void put(String jti, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.millis()) {
+            return; // ya no autentica
+        }
+        buckets.computeIfAbsent(bucketStart(expiresAtMillis), k -> new Bucket(bitsPerBucket)).put(hash(jti), hashFunctions);
+    }
+
+    public boolean mightContain(String jti, long expiresAtMillis) {
+        Bucket bucket = buckets.get(bucketStart(expiresAtMillis));
+        return bucket != null && bucket.mightContain(hash(jti), hashFunctions);
+    }
+
+    /**
+     * Descarta los baldes cuyos tokens ya vencieron todos. Devuelve cuántos se descartaron.
+     */
+    public int rotate() {
+        long now = clock.millis();
+        int dropped = 0;
+        Iterator<Map.Entry<Long, Bucket>> it = buckets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Bucket> bucket = it.next();
+            if (bucket.getKey() + bucketMillis > now) {
+                break;
+            }
+            it.remove();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    public long entries() {
+        long entries = 0;
+        for (Bucket bucket : buckets.values()) {
+            entries += bucket.insertions.sum();
+        }
+        return entries;
+    }
+
+    public long memoryBytes() {
+        return (long) buckets.size() * (bitsPerBucket / Byte.SIZE);
+    }
+
+    /**
+     * Tasa de falsos positivos esperada en el balde más cargado: (1 - e^(-kn/m))^k.
+     */
+    public double expectedFalsePositiveRate() {
+        double worst = 0;
+        for (Bucket bucket : buckets.values()) {
+            double n = bucket.insertions.sum();
+            worst = Math.max(worst, Math.pow(1 - Math.exp(-hashFunctions * n / bitsPerBucket), hashFunctions));
+        }
+        return worst;
+    }
+
+    private long bucketStart(long expiresAtMillis) {
+        return expiresAtMillis - Math.floorMod(expiresAtMillis, bucketMillis);
+    }
+
+    // Hash de 64 bits del jti (mezcla de MurmurHash3 por caracter)
+    private static long hash(String jti) {
+        long h = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < jti.length(); i++) {
+            h ^= jti.charAt(i);
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLongArray words;
+        private final int bits;
+        private final LongAdder insertions = new LongAdder();
+
+        Bucket(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+            this.bits = bits;
+        }
+
+        // Doble hashing (Kirsch-Mitzenmacher): k posiciones a partir de dos mitades del hash
+        void put(long hash, int k) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < k; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+            }
+            insertions.increment();
+        }
+
+        boolean mightContain(long hash, int k) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < k; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Resultado de parsear y verificar un JWT una única vez.
+ * Si el token es válido expone subject, fechas y claims; si no, el motivo del rechazo
+ * (sin lanzar excepciones), para que el filtro y los servicios no vuelvan a parsearlo.
+ */
+public record ValidatedToken(
+        String subject,
+        Date issuedAt,
+        Date expiration,
+        Claims claims,
+        FailureReason failureReason) {
+
+    public enum FailureReason {
+        MISSING,
+        MALFORMED,
+        UNSUPPORTED,
+        INVALID_SIGNATURE,
+        EXPIRED
+    }
+
+    public static ValidatedToken of(Claims claims) {
+        return new ValidatedToken(
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims,
+                null);
+    }
+
+    public static ValidatedToken failed(FailureReason reason) {
+        return new ValidatedToken(null, null, null, null, reason);
+    }
+
+    public boolean isValid() {
+        return failureReason == null;
+    }
+
+    // Identificador único del token ("jti"); null en tokens emitidos antes de la denylist
+    public String jti() {
+        return claims == null ? null : claims.getId();
+    }
+
+    public <T> T claim(String name, Class<T> type) {
+        return claims == null ? null : claims.get(name, type);
+    }
+}
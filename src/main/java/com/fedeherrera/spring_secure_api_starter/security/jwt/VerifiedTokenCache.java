@@ -0,0 +1,121 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache opcional de tokens ya verificados (jwt.token-cache.enabled).
+ *
+ * La clave es el segmento de firma del JWT: ya es un HMAC del contenido, así que sirve de
+ * digest sin volver a hashear nada. En un hit se compara el token completo, por lo que una
+ * firma reutilizada con otro payload nunca devuelve claims ajenos.
+ *
+ * Protección contra tokens "rociados": solo se guardan tokens con firma válida (emitidos por
+ * nosotros) y Caffeine admite entradas nuevas por frecuencia (W-TinyLFU), así que los tokens
+ * vistos una sola vez no desplazan a los que se reutilizan. Cada entrada vence, como tarde,
+ * en el "exp" del token.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private record Entry(String token, ValidatedToken result) {
+    }
+
+    private final boolean enabled;
+    private final Cache<String, Entry> entries;
+    private final Timer verifyTimer;
+    private final DoubleAdder savedNanos = new DoubleAdder();
+
+    @Autowired
+    public VerifiedTokenCache(
+            MeterRegistry meterRegistry,
+            @Value("${jwt.token-cache.enabled:false}") boolean enabled,
+            @Value("${jwt.token-cache.max-size:50000}") long maxSize,
+            @Value("${jwt.token-cache.max-ttl:15m}") Duration maxTtl) {
+        this(meterRegistry, enabled, maxSize, maxTtl, Ticker.systemTicker());
+    }
+
+    VerifiedTokenCache(MeterRegistry meterRegistry, boolean enabled, long maxSize, Duration maxTtl, Ticker ticker) {
+        this.enabled = enabled;
+        this.entries = Caffeine.newBuilder()
+                .ticker(ticker)
+                .maximumSize(maxSize)
+                .expireAfter(expiresAtTokenExp(maxTtl))
+                .recordStats()
+                .build();
+        this.verifyTimer = Timer.builder("auth.jwt.verify")
+                .description("Verificación de firma de JWT (misses de la cache)")
+                .register(meterRegistry);
+
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, entries, "auth.jwt.verified");
+            FunctionCounter.builder("auth.jwt.cache.cpu.saved", savedNanos, adder -> adder.sum() / 1_000_000_000d)
+                    .description("Tiempo estimado de verificación ahorrado por hits (hits x tiempo medio de verificación)")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    public ValidatedToken get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.getIfPresent(signatureOf(token));
+        if (entry == null || !entry.token().equals(token)) {
+            return null;
+        }
+        savedNanos.add(verifyTimer.mean(TimeUnit.NANOSECONDS));
+        return entry.result();
+    }
+
+    /**
+     * Registra el costo de una verificación completa y, si el token es válido, lo cachea.
+     */
+    public void put(String token, ValidatedToken result, long verifyNanos) {
+        verifyTimer.record(verifyNanos, TimeUnit.NANOSECONDS);
+        if (enabled && result.isValid() && result.expiration() != null) {
+            entries.put(signatureOf(token), new Entry(token, result));
+        }
+    }
+
+    private static String signatureOf(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+    private static Expiry<String, Entry> expiresAtTokenExp(Duration maxTtl) {
+        long maxTtlNanos = maxTtl.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                long untilExp = TimeUnit.MILLISECONDS.toNanos(
+                        entry.result().expiration().getTime() - System.currentTimeMillis());
+                return Math.max(0, Math.min(untilExp, maxTtlNanos));
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, entry, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
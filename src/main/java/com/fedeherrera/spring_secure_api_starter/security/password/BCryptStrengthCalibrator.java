@@ -0,0 +1,45 @@
+package com.fedeherrera.spring_secure_api_starter.security.password;
+
+import java.time.Duration;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Elige el costo de BCrypt según el hardware donde corre la app: mide un hash con
+ * minStrength y, como cada punto de costo duplica el tiempo, se queda con el mayor
+ * costo cuyo tiempo estimado no supere targetLatency.
+ */
+@Slf4j
+public final class BCryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-Passw0rd!";
+    private static final int SAMPLES = 3;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode(SAMPLE_PASSWORD); // warm-up (JIT)
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long estimated = best;
+        while (strength < maxStrength && estimated * 2 <= targetLatency.toNanos()) {
+            strength++;
+            estimated *= 2;
+        }
+
+        log.info("BCrypt calibrado: costo {} (~{} ms por hash, objetivo {} ms)",
+                strength, Duration.ofNanos(estimated).toMillis(), targetLatency.toMillis());
+        return strength;
+    }
+}
@@ -0,0 +1,55 @@
+package com.fedeherrera.spring_secure_api_starter.security.password;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Encoder con prefijo de algoritmo ({bcrypt}$2a$12$...).
+ * - Los hashes nuevos usan BCrypt con el costo configurado
+ * - Los hashes viejos sin prefijo se siguen validando como BCrypt
+ * - upgradeEncoding() es true para hashes sin prefijo o con costo menor al actual:
+ *   DaoAuthenticationProvider los vuelve a hashear en el siguiente login correcto
+ * Para cambiar de algoritmo basta con agregar su id acá y pasarlo como default.
+ *
+ * UNUSABLE_PASSWORD marca cuentas sin password local (ej. usuarios de Google):
+ * nunca coincide con nada y no cuesta un hash al crearlas.
+ */
+public final class PasswordEncoders {
+
+    public static final String DEFAULT_ID = "bcrypt";
+
+    private static final String UNUSABLE_ID = "unusable";
+
+    public static final String UNUSABLE_PASSWORD = "{" + UNUSABLE_ID + "}";
+
+    private PasswordEncoders() {
+    }
+
+    public static DelegatingPasswordEncoder delegating(int bcryptStrength) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(DEFAULT_ID, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(UNUSABLE_ID, new UnusablePasswordEncoder());
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(DEFAULT_ID, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
+    }
+
+    private static final class UnusablePasswordEncoder implements PasswordEncoder {
+
+        // Cualquier password "hasheado" con este encoder queda inutilizable
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return UNUSABLE_PASSWORD;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.fedeherrera.spring_secure_api_starter.security.refresh;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Familias de refresh tokens en la tabla refresh_token_family.
+ *
+ * Cada refresh token lleva el id de su familia y su generación. Rotar es un único
+ * UPDATE ... WHERE generation = ? (compare-and-swap): si afecta una fila el token era el
+ * vigente y la familia avanza una generación; si no, recién ahí se lee la fila para saber
+ * por qué (reuso de un token ya rotado, familia revocada o vencida).
+ */
+@Component
+public class RefreshTokenFamilyStore {
+
+    public enum Rotation {
+        ROTATED,
+        // Se presentó un token ya rotado: posible robo, la familia queda revocada
+        REUSED,
+        // El token anterior llegó dos veces casi a la vez (reintento del cliente): se rechaza sin revocar
+        CONCURRENT,
+        REVOKED,
+        EXPIRED,
+        UNKNOWN
+    }
+
+    private static final String INSERT =
+            "INSERT INTO refresh_token_family (id, user_id, generation, created_at, expires_at) VALUES (?, ?, 0, ?, ?)";
+    private static final String ROTATE =
+            "UPDATE refresh_token_family SET generation = generation + 1, rotated_at = ?, expires_at = ? "
+                    + "WHERE id = ? AND generation = ? AND revoked_at IS NULL AND expires_at > ?";
+    private static final String SELECT_STATE =
+            "SELECT generation, rotated_at, expires_at, revoked_at FROM refresh_token_family WHERE id = ?";
+    private static final String REVOKE =
+            "UPDATE refresh_token_family SET revoked_at = ? WHERE id = ? AND revoked_at IS NULL";
+    private static final String SELECT_ACTIVE_BY_USER =
+            "SELECT id FROM refresh_token_family WHERE user_id = ? AND revoked_at IS NULL";
+    private static final String REVOKE_BY_USER =
+            "UPDATE refresh_token_family SET revoked_at = ? WHERE user_id = ? AND revoked_at IS NULL";
+    private static final String SELECT_REVOKED_SINCE =
+            "SELECT id, revoked_at FROM refresh_token_family WHERE revoked_at >= ?";
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM refresh_token_family WHERE expires_at < ? LIMIT ?";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    @Autowired
+    public RefreshTokenFamilyStore(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, Clock.systemDefaultZone());
+    }
+
+    RefreshTokenFamilyStore(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Abre una familia nueva (generación 0) y devuelve su id.
+     */
+    public long create(long userId, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        while (true) {
+            long id = RANDOM.nextLong() & Long.MAX_VALUE;
+            if (id == 0) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(INSERT, id, userId, now, now.plus(ttl));
+                return id;
+            } catch (DuplicateKeyException e) {
+                // Colisión de 63 bits: improbable, se sortea otro id
+            }
+        }
+    }
+
+    /**
+     * Avanza la familia si {@code generation} es la vigente.
+     */
+    public Rotation rotate(long familyId, long generation, Duration ttl, Duration reuseGrace) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (jdbcTemplate.update(ROTATE, now, now.plus(ttl), familyId, generation, now) == 1) {
+            return Rotation.ROTATED;
+        }
+
+        List<FamilyState> rows = jdbcTemplate.query(SELECT_STATE, (rs, rowNum) -> new FamilyState(
+                rs.getLong("generation"),
+                toLocalDateTime(rs.getTimestamp("rotated_at")),
+                toLocalDateTime(rs.getTimestamp("expires_at")),
+                toLocalDateTime(rs.getTimestamp("revoked_at"))), familyId);
+        if (rows.isEmpty()) {
+            return Rotation.UNKNOWN;
+        }
+        FamilyState state = rows.get(0);
+        if (state.revokedAt() != null) {
+            return Rotation.REVOKED;
+        }
+        if (!state.expiresAt().isAfter(now)) {
+            return Rotation.EXPIRED;
+        }
+        if (generation >= state.generation()) {
+            return Rotation.UNKNOWN; // generación que nunca se emitió
+        }
+        if (generation == state.generation() - 1 && state.rotatedAt() != null
+                && state.rotatedAt().plus(reuseGrace).isAfter(now)) {
+            return Rotation.CONCURRENT;
+        }
+        revoke(familyId);
+        return Rotation.REUSED;
+    }
+
+    public boolean revoke(long familyId) {
+        return jdbcTemplate.update(REVOKE, LocalDateTime.now(clock), familyId) == 1;
+    }
+
+    /**
+     * Revoca todas las sesiones abiertas del usuario y devuelve los ids afectados.
+     */
+    @Transactional
+    public List<Long> revokeAllForUser(long userId) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_ACTIVE_BY_USER, Long.class, userId);
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(REVOKE_BY_USER, LocalDateTime.now(clock), userId);
+        }
+        return ids;
+    }
+
+    /**
+     * Recorre las familias revocadas desde {@code since} sin materializarlas en una lista.
+     */
+    public void forEachRevokedSince(LocalDateTime since, BiConsumer<Long, LocalDateTime> consumer) {
+        jdbcTemplate.query(SELECT_REVOKED_SINCE,
+                rs -> {
+                    consumer.accept(rs.getLong("id"), toLocalDateTime(rs.getTimestamp("revoked_at")));
+                },
+                since);
+    }
+
+    public int deleteExpiredBatch(LocalDateTime now, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED, now, limit);
+    }
+
+    public long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private record FamilyState(long generation, LocalDateTime rotatedAt, LocalDateTime expiresAt,
+            LocalDateTime revokedAt) {
+    }
+}
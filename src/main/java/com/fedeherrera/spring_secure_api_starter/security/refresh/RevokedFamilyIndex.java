@@ -0,0 +1,210 @@
+package com.fedeherrera.spring_secure_api_starter.security.refresh;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Conjunto en memoria de familias de refresh tokens revocadas.
+ *
+ * Los ids (long) se guardan en tablas primitivas de open addressing (16 a 32 bytes por familia),
+ * agrupadas en baldes por fecha de revocación. Un refresh token vive como mucho
+ * {@code retention} (jwt.refresh-expiration), así que pasado ese tiempo una familia revocada
+ * ya no tiene tokens válidos y su balde se descarta entero, sin recorrer entradas.
+ *
+ * Con el tope de maxEntries alcanzado se descarta el balde más viejo: el índice es solo un
+ * atajo, la tabla refresh_token_family sigue siendo la fuente de verdad.
+ */
+public class RevokedFamilyIndex {
+
+    private final Clock clock;
+    private final long retentionMillis;
+    private final long bucketMillis;
+    private final int maxEntries;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // inicio del balde (epoch millis) -> ids revocados en esa franja
+    private final TreeMap<Long, LongSet> buckets = new TreeMap<>();
+    private volatile int size;
+
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    public RevokedFamilyIndex(Duration retention, int bucketCount, int maxEntries, Clock clock) {
+        if (bucketCount < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("bucketCount y maxEntries deben ser >= 1");
+        }
+        this.clock = clock;
+        this.retentionMillis = retention.toMillis();
+        this.bucketMillis = Math.max(1, retentionMillis / bucketCount);
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean contains(long familyId) {
+        if (size == 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            for (LongSet bucket : buckets.values()) {
+                if (bucket.contains(familyId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long familyId, long revokedAtMillis) {
+        long now = clock.millis();
+        if (revokedAtMillis + retentionMillis <= now) {
+            return; // sus tokens ya vencieron
+        }
+        long start = revokedAtMillis - Math.floorMod(revokedAtMillis, bucketMillis);
+
+        lock.writeLock().lock();
+        try {
+            dropExpired(now);
+            if (containsLocked(familyId)) {
+                return;
+            }
+            while (size >= maxEntries && !buckets.isEmpty()) {
+                LongSet oldest = buckets.pollFirstEntry().getValue();
+                size -= oldest.size();
+                capacityEvictions.add(oldest.size());
+            }
+            if (buckets.computeIfAbsent(start, k -> new LongSet()).add(familyId)) {
+                size++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta los baldes cuyas familias ya no pueden tener refresh tokens vigentes.
+     */
+    public void expire() {
+        lock.writeLock().lock();
+        try {
+            dropExpired(clock.millis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (LongSet bucket : buckets.values()) {
+                bytes += (long) bucket.keys.length * Long.BYTES;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    private boolean containsLocked(long familyId) {
+        for (LongSet bucket : buckets.values()) {
+            if (bucket.contains(familyId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dropExpired(long now) {
+        Iterator<Map.Entry<Long, LongSet>> it = buckets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, LongSet> bucket = it.next();
+            // La última revocación del balde ocurrió antes de start + bucketMillis
+            if (bucket.getKey() + bucketMillis + retentionMillis > now) {
+                break;
+            }
+            size -= bucket.getValue().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Set de long sin boxing. 0 marca un slot vacío (los ids de familia nunca son 0).
+     * No necesita bajas: los ids se descartan con todo el balde.
+     */
+    private static final class LongSet {
+
+        private long[] keys = new long[16];
+        private int size;
+
+        boolean contains(long key) {
+            long[] table = keys;
+            int mask = table.length - 1;
+            for (int i = mix(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(long key) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            if (insert(keys, key)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] grown = new long[keys.length * 2];
+            for (long key : keys) {
+                if (key != 0) {
+                    insert(grown, key);
+                }
+            }
+            keys = grown;
+        }
+
+        private static boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int i = mix(key) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            return true;
+        }
+
+        // Finalizador de MurmurHash3
+        private static int mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.fedeherrera.spring_secure_api_starter.security.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Tokens opacos que viajan en links de email. Al cliente se le entrega el valor en claro
+ * y en la base solo se guarda su SHA-256: una copia de la tabla no permite usar los tokens.
+ */
+public final class OpaqueTokens {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private OpaqueTokens() {
+    }
+
+    /**
+     * 256 bits aleatorios en base64url (43 caracteres, seguros para usar en una URL).
+     */
+    public static String generate() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
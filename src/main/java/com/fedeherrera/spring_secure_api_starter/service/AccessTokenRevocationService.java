@@ -0,0 +1,184 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.RevokedAccessTokenStore;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.RevokedTokenBloomFilter;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Denylist de access tokens (por jti) para cortar un token antes de su "exp" (logout).
+ * - Camino común: el Bloom filter responde "no revocado" sin ir a la DB
+ * - Solo un positivo del filtro se confirma contra revoked_access_token
+ * - Cada réplica incorpora periódicamente las revocaciones hechas por las demás; hasta
+ *   entonces un token revocado en otra réplica sigue valiendo (como mucho sync-interval)
+ */
+@Slf4j
+@Service
+public class AccessTokenRevocationService {
+
+    static final String PURGE_LOCK_NAME = "revoked-access-token-purge";
+
+    private final RevokedAccessTokenStore store;
+    private final RevokedTokenBloomFilter filter;
+    private final JdbcLeaseLock leaseLock;
+    private final Duration accessTokenTtl;
+    private final Duration syncOverlap;
+    private final int purgeBatchSize;
+
+    private final Counter negative;
+    private final Counter falsePositive;
+    private final Counter revoked;
+    private final Counter rotatedBuckets;
+
+    private volatile LocalDateTime lastSync;
+
+    public AccessTokenRevocationService(
+            RevokedAccessTokenStore store,
+            JdbcLeaseLock leaseLock,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.expiration}") long accessExpirationMillis,
+            @Value("${jwt.denylist.bucket-width:1m}") Duration bucketWidth,
+            @Value("${jwt.denylist.expected-per-bucket:10000}") int expectedPerBucket,
+            @Value("${jwt.denylist.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${jwt.denylist.sync-overlap:10s}") Duration syncOverlap,
+            @Value("${jwt.denylist.purge.batch-size:1000}") int purgeBatchSize) {
+        this.store = store;
+        this.leaseLock = leaseLock;
+        this.accessTokenTtl = Duration.ofMillis(accessExpirationMillis);
+        this.syncOverlap = syncOverlap;
+        this.purgeBatchSize = purgeBatchSize;
+        this.filter = new RevokedTokenBloomFilter(bucketWidth, expectedPerBucket, falsePositiveRate,
+                Clock.systemDefaultZone());
+
+        this.negative = Counter.builder("auth.jwt.denylist.lookups")
+                .tag("result", "negative")
+                .register(meterRegistry);
+        this.falsePositive = Counter.builder("auth.jwt.denylist.lookups")
+                .tag("result", "false_positive")
+                .register(meterRegistry);
+        this.revoked = Counter.builder("auth.jwt.denylist.lookups")
+                .tag("result", "revoked")
+                .register(meterRegistry);
+        this.rotatedBuckets = Counter.builder("auth.jwt.denylist.rotated")
+                .description("Baldes del Bloom filter descartados porque sus tokens vencieron")
+                .register(meterRegistry);
+        Gauge.builder("auth.jwt.denylist.bytes", filter, RevokedTokenBloomFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.jwt.denylist.entries", filter, RevokedTokenBloomFilter::entries)
+                .description("jti revocados en el Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("auth.jwt.denylist.buckets", filter, RevokedTokenBloomFilter::bucketCount)
+                .register(meterRegistry);
+        Gauge.builder("auth.jwt.denylist.fpp", filter, RevokedTokenBloomFilter::expectedFalsePositiveRate)
+                .description("Tasa de falsos positivos esperada en el balde más cargado")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Revoca un access token ya verificado hasta su vencimiento.
+     */
+    public void revoke(ValidatedToken token, Long userId) {
+        String jti = token.jti();
+        if (!token.isValid() || jti == null || token.expiration() == null) {
+            return; // tokens sin jti (anteriores a la denylist) no se pueden revocar individualmente
+        }
+        long expiresAt = token.expiration().getTime();
+        store.revoke(jti, userId, toLocalDateTime(expiresAt));
+        filter.put(jti, expiresAt);
+    }
+
+    /**
+     * Registra un token de un solo uso hasta su vencimiento. Devuelve false si ya estaba
+     * registrado: decide el INSERT sobre la PK, así que vale también entre réplicas.
+     * Solo va a la DB: el Bloom filter tiene un balde por minuto pensado para la vida de un
+     * access token, y un refresh token de días dejaría miles de baldes vivos.
+     */
+    public boolean markConsumed(String jti, Long userId, long expiresAtMillis) {
+        return store.revoke(jti, userId, toLocalDateTime(expiresAtMillis));
+    }
+
+    public boolean isRevoked(ValidatedToken token) {
+        String jti = token.jti();
+        if (jti == null || token.expiration() == null) {
+            return false;
+        }
+        if (!filter.mightContain(jti, token.expiration().getTime())) {
+            negative.increment();
+            return false;
+        }
+        try {
+            if (store.isRevoked(jti)) {
+                revoked.increment();
+                return true;
+            }
+            falsePositive.increment();
+            return false;
+        } catch (DataAccessException e) {
+            // Positivo sin poder confirmar: se rechaza (preferimos un 401 a aceptar un token revocado)
+            log.warn("No se pudo confirmar la revocación del jti {}: {}", jti, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Trae las revocaciones de otras réplicas. La primera pasada carga todas las vigentes.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.sync-interval:10s}")
+    public void syncRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync == null ? now.minus(accessTokenTtl) : lastSync.minus(syncOverlap);
+        try {
+            // Solo lo que vence dentro de la vida de un access token (más el solapamiento)
+            LocalDateTime horizon = now.plus(accessTokenTtl).plus(syncOverlap);
+            store.forEachRevokedSince(since, horizon, (jti, expiresAt) ->
+                    filter.put(jti, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+            lastSync = now;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo sincronizar la denylist de access tokens: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.denylist.bucket-width:1m}")
+    public void rotateBuckets() {
+        rotatedBuckets.increment(filter.rotate());
+    }
+
+    @Scheduled(cron = "${jwt.denylist.purge.cron:0 */15 * * * *}")
+    public void purgeExpired() {
+        if (!leaseLock.tryAcquire(PURGE_LOCK_NAME, Duration.ofMinutes(5))) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int deleted;
+            do {
+                deleted = store.deleteExpiredBatch(now, purgeBatchSize);
+            } while (deleted == purgeBatchSize);
+        } catch (RuntimeException e) {
+            log.error("Error purgando access tokens revocados: {}", e.getMessage(), e);
+        } finally {
+            leaseLock.release(PURGE_LOCK_NAME);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
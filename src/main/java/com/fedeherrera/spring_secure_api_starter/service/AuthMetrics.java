@@ -0,0 +1,57 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Duración y resultado de cada login y refresh: auth.login{method,outcome} y auth.refresh{outcome}.
+ * Los tags salen de enums cerrados (nunca usuario, IP ni mensaje), así la cantidad de series
+ * queda acotada. Los percentiles y buckets SLO se configuran en management.metrics.distribution.
+ */
+@Component
+public class AuthMetrics {
+
+    public enum Method {
+        PASSWORD, GOOGLE
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        BAD_CREDENTIALS,
+        DISABLED,
+        INVALID_TOKEN,
+        USER_NOT_FOUND,
+        INVALID_SESSION,
+        BUSY,
+        ERROR;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void login(Timer.Sample sample, Method method, Outcome outcome) {
+        sample.stop(Timer.builder("auth.login")
+                .description("Login completo: credenciales, carga del usuario y emisión de tokens")
+                .tag("method", method.name().toLowerCase())
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry));
+    }
+
+    public void refresh(Timer.Sample sample, Outcome outcome) {
+        sample.stop(Timer.builder("auth.refresh")
+                .description("Refresh: validación, rotación y emisión de tokens")
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry));
+    }
+}
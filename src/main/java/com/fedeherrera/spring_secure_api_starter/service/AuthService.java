@@ -8,17 +8,22 @@ import com.fedeherrera.spring_secure_api_starter.dto.PublicRegisterRequest;
 import com.fedeherrera.spring_secure_api_starter.entity.Role;
 import com.fedeherrera.spring_secure_api_starter.entity.User;
 import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
-import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken;
 import com.fedeherrera.spring_secure_api_starter.exception.AuthException;
 import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.password.PasswordEncoders;
+import com.fedeherrera.spring_secure_api_starter.service.AuthMetrics.Method;
+import com.fedeherrera.spring_secure_api_starter.service.AuthMetrics.Outcome;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -26,8 +31,8 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 
+import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,29 +43,25 @@ public class AuthService {
     private final UserService userService;
     private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
-    private final VerificationService verificationService;
-    private final EmailService emailService;
+    private final RegistrationWriter registrationWriter;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final GoogleTokenVerifierService   googleTokenVerifierService;
+    private final GoogleLoginCache googleLoginCache;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final AccessTokenRevocationService accessTokenRevocationService;
+    private final AuthMetrics authMetrics;
     /**
      * Registro de usuario base
      * - Password encriptado
      * - ROLE_USER asignado
      * - enabled = false (requiere verificación)
+     * El hash se calcula fuera de la transacción; usuario, token y email pendiente
+     * se confirman juntos en RegistrationWriter
      */
     public void registerPublic(PublicRegisterRequest request) {
 
-        String username = request.getUsername().trim().toLowerCase();
-        String email = request.getEmail().trim().toLowerCase();
-
-        if (userService.existsByUsername(username)) {
-            throw new RegistrationException("Username ya registrado.");
-        }
-        if (userService.existsByEmail(email)) {
-            throw new RegistrationException("Email ya registrado.");
-        }
-
         Role roleUser = roleService.findByName("ROLE_USER")
                 .orElseThrow(() -> new IllegalStateException("ROLE_USER not found"));
 
@@ -74,33 +75,11 @@ public class AuthService {
                 .roles(Set.of(roleUser))
                 .build();
 
-        userService.save(user);
-
-        // 1️⃣ Generar token de verificación
-    VerificationToken token = verificationService.createToken(user);
-   
-
-    // 2️⃣ Construir magic link
-    String verificationLink = "http://localhost:3000/auth/verify?token=" + token.getToken();
-
-    // 3️⃣ Enviar email
-    emailService.sendEmail(
-            user.getEmail(),
-            "Verify your account",
-            "Click the link to verify your account: " + verificationLink
-    );
-
+        registrationWriter.insertPending(user);
     }
 
     public void registerInternal(AdminCreateUserRequest request) {
 
-        if (userService.existsByUsername(request.getUsername())) {
-            throw new RegistrationException("Username ya registrado.");
-        }
-        if (userService.existsByEmail(request.getEmail())) {
-            throw new RegistrationException("Email ya registrado.");
-        }
-
         Set<Role> roles = request.getRoles().stream()
                 .map(roleService::findByName)
                 .map(opt -> opt.orElseThrow(() -> new RegistrationException("Invalid user data")))
@@ -116,13 +95,12 @@ public class AuthService {
                 .roles(roles)
                 .build();
 
-        userService.save(user);
-
-        
+        userService.register(user);
     }
 
     public LoginResponse login(LoginRequest request) {
-
+        Timer.Sample sample = authMetrics.start();
+        Outcome outcome = Outcome.ERROR;
         try{
         Authentication auth = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -132,22 +110,39 @@ public class AuthService {
         );
 
         UserPrincipal userPrincipal = (UserPrincipal) auth.getPrincipal();
-        User user = userPrincipal.getUser();
         String accessToken = jwtService.generateToken(userPrincipal);
-        String refreshToken = jwtService.generateRefreshToken(userPrincipal);
-        return new LoginResponse(user.getUsername(), accessToken, refreshToken, user.getRoles().iterator().next().getName());
+        String refreshToken = refreshTokenService.issue(userPrincipal);
+        outcome = Outcome.SUCCESS;
+        return new LoginResponse(userPrincipal.getUsername(), accessToken, refreshToken, userPrincipal.getPrimaryRole());
     }
     catch (BadCredentialsException e) {
+        outcome = Outcome.BAD_CREDENTIALS;
         throw new AuthException("Credenciales inválidas");
     } catch (DisabledException e) {
+        outcome = Outcome.DISABLED;
         throw new AuthException("Usuario no verificado");
+    } catch (ServiceBusyException e) {
+        outcome = Outcome.BUSY;
+        throw e;
+    } finally {
+        authMetrics.login(sample, Method.PASSWORD, outcome);
     }
     }
 public LoginResponse loginWithGoogle(String googleToken) {
+    Timer.Sample sample = authMetrics.start();
+    Outcome outcome = Outcome.ERROR;
     try {
+        // 0. Reintento con el mismo idToken: ya fue verificado y vinculado a un usuario
+        Optional<LoginResponse> cached = loginFromCache(googleToken);
+        if (cached.isPresent()) {
+            outcome = Outcome.SUCCESS;
+            return cached.get();
+        }
+
         // 1. Validar token de Google
         GoogleIdToken.Payload payload = googleTokenVerifierService.verify(googleToken);
         if (payload == null) {
+            outcome = Outcome.INVALID_TOKEN;
             throw new AuthException("Token de Google inválido");
         }
 
@@ -161,14 +156,16 @@ public LoginResponse loginWithGoogle(String googleToken) {
 
         // 3. Verificar que el usuario esté habilitado
         if (!user.isEnabled()) {
+            outcome = Outcome.DISABLED;
             throw new AuthException("El usuario está deshabilitado");
         }
+        googleLoginCache.put(googleToken, payload, user.getId(), user.getUsername());
 
         // 4. Generar JWT tokens
         // Convertimos nuestra entidad User a UserPrincipal (que sí implementa UserDetails)
-        UserDetails userDetails = new UserPrincipal(user);
+        UserPrincipal userDetails = new UserPrincipal(user);
         String accessToken = jwtService.generateToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        String refreshToken = refreshTokenService.issue(userDetails);
 
         // 5. Obtener el nombre del rol de forma segura
         String roleName = user.getRoles().stream()
@@ -176,6 +173,7 @@ public LoginResponse loginWithGoogle(String googleToken) {
                 .map(Role::getName)
                 .orElse("ROLE_USER");
 
+        outcome = Outcome.SUCCESS;
         return new LoginResponse(
                 user.getUsername(),
                 accessToken,
@@ -185,15 +183,47 @@ public LoginResponse loginWithGoogle(String googleToken) {
 
     } catch (AuthException e) {
         // Re-lanzamos nuestra propia excepción para que el Handler la capture
+        if (outcome == Outcome.ERROR) {
+            // loginFromCache: usuario cacheado que ya está deshabilitado
+            outcome = Outcome.DISABLED;
+        }
         throw e;
     } catch (Exception e) {
+        // BadCredentialsException: firma, audiencia o vencimiento del ID token
+        outcome = e instanceof BadCredentialsException ? Outcome.INVALID_TOKEN : Outcome.ERROR;
         // Logueamos el error real para nosotros
         log.error("Error crítico en autenticación de Google: ", e);
         // Enviamos un mensaje genérico al cliente
         throw new AuthException("Error durante la autenticación con Google");
+    } finally {
+        authMetrics.login(sample, Method.GOOGLE, outcome);
     }
 }
 
+    private Optional<LoginResponse> loginFromCache(String googleToken) {
+        if (googleToken == null || googleToken.isBlank()) {
+            return Optional.empty();
+        }
+        return googleLoginCache.get(googleToken).flatMap(entry -> {
+            UserPrincipal principal;
+            try {
+                // Snapshot cacheado: refleja bajas, deshabilitaciones y cambios de rol
+                principal = userDetailsService.loadPrincipal(entry.username());
+            } catch (UsernameNotFoundException e) {
+                googleLoginCache.invalidate(googleToken);
+                return Optional.empty();
+            }
+            if (!principal.isEnabled()) {
+                throw new AuthException("El usuario está deshabilitado");
+            }
+            return Optional.of(new LoginResponse(
+                    principal.getUsername(),
+                    jwtService.generateToken(principal),
+                    refreshTokenService.issue(principal),
+                    principal.getPrimaryRole()));
+        });
+    }
+
     public User createGoogleUser(String email, String name) {
     // Split name into first and last name
     String[] names = name.split(" ", 2);
@@ -206,7 +236,7 @@ public LoginResponse loginWithGoogle(String googleToken) {
             .username(email) // Using email as username for Google users
             .firstName(firstName)
             .lastName(lastName)
-            .password(passwordEncoder.encode(UUID.randomUUID().toString())) // Random password for Google users
+            .password(PasswordEncoders.UNUSABLE_PASSWORD) // Sin password local: nunca coincide en /auth/login
             .enabled(true) // Google users are auto-verified
             .provider(AuthProviderEnum.GOOGLE)
             .build();
@@ -220,33 +250,77 @@ public LoginResponse loginWithGoogle(String googleToken) {
 }
 
 public LoginResponse refreshToken(String refreshToken) {
-    // 1. Validar firma y extraer email sin ir a la DB aún
-    if (!jwtService.isTokenSignatureValid(refreshToken)) {
-        throw new AuthException("Refresh token inválido o expirado");
-    }
-
-    String userEmail = jwtService.extractUsername(refreshToken);
+    Timer.Sample sample = authMetrics.start();
+    Outcome outcome = Outcome.ERROR;
+    try {
+        // 1. Validar firma y extraer email sin ir a la DB aún (un único parseo)
+        ValidatedToken token = jwtService.validate(refreshToken);
+        // Un access token (o cualquier otro que no sea refresh) no abre sesiones
+        if (!token.isValid() || !jwtService.isRefreshToken(token)) {
+            outcome = Outcome.INVALID_TOKEN;
+            throw new AuthException("Refresh token inválido o expirado");
+        }
+        // Revocado por jti (logout, canje legacy): Bloom filter y, solo ante un positivo, la DB
+        if (accessTokenRevocationService.isRevoked(token)) {
+            outcome = Outcome.INVALID_TOKEN;
+            throw new AuthException("Refresh token inválido o expirado");
+        }
 
-    // 2. Buscar usuario
-    var user = userService.findByUsername(userEmail)
-            .orElseThrow(() -> new AuthException("Usuario no encontrado"));
+        // 2. Buscar usuario (cache de principals: normalmente sin query)
+        UserPrincipal principal;
+        try {
+            principal = userDetailsService.loadPrincipal(token.subject());
+        } catch (UsernameNotFoundException e) {
+            outcome = Outcome.USER_NOT_FOUND;
+            throw new AuthException("Usuario no encontrado");
+        }
 
-    // 3. Validación final (incluyendo el passwordChangedAt que hicimos antes)
-    UserPrincipal principal = new UserPrincipal(user);
-    if (!jwtService.isTokenValid(refreshToken, principal)) {
-        throw new AuthException("Sesión inválida, por favor inicie sesión nuevamente");
-    }
+        // 3. Validación final (incluyendo el passwordChangedAt que hicimos antes)
+        if (!principal.isEnabled() || !jwtService.isTokenValid(token, principal)) {
+            outcome = Outcome.INVALID_SESSION;
+            throw new AuthException("Sesión inválida, por favor inicie sesión nuevamente");
+        }
 
-    // 4. Generar nuevo Access Token
-    String accessToken = jwtService.generateToken(principal);
+        // 4. Rotar: el refresh token recibido deja de servir y se entrega el siguiente de la familia
+        String nextRefreshToken;
+        try {
+            nextRefreshToken = refreshTokenService.rotate(token, principal);
+        } catch (AuthException e) {
+            // Reuso de un refresh token ya rotado: la familia quedó revocada
+            outcome = Outcome.INVALID_SESSION;
+            throw e;
+        }
+        String accessToken = jwtService.generateToken(principal);
 
-    return new LoginResponse(
-            user.getUsername(),
-            accessToken,
-            refreshToken, // Reutilizamos el mismo Refresh Token
-            user.getRoles().stream().findFirst().map(Role::getName).orElse("ROLE_USER")
-    );
+        outcome = Outcome.SUCCESS;
+        return new LoginResponse(
+                principal.getUsername(),
+                accessToken,
+                nextRefreshToken,
+                principal.getPrimaryRole()
+        );
+    } finally {
+        authMetrics.refresh(sample, outcome);
+    }
 }
 
-
+    /**
+     * Logout: el access token deja de valer ya (denylist por jti) y, si se envía el
+     * refresh token, se revoca su familia para que no se puedan pedir más tokens.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        ValidatedToken access = jwtService.validate(accessToken);
+        if (!access.isValid()) {
+            throw new AuthException("Token inválido o expirado");
+        }
+        accessTokenRevocationService.revoke(access, access.claim(JwtService.CLAIM_USER_ID, Long.class));
+
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            ValidatedToken refresh = jwtService.validate(refreshToken);
+            // Solo se cierra la sesión si el refresh token es del mismo usuario
+            if (refresh.isValid() && access.subject().equals(refresh.subject())) {
+                refreshTokenService.revoke(refresh);
+            }
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Tabla en memoria userId -> versión de credenciales vigente (modo stateless).
+ * - Token con la versión conocida: válido sin tocar la DB
+ * - Token con versión menor: revocado (hubo un cambio de password)
+ * - Usuario desconocido o token con versión mayor: se consulta la DB
+ * El TTL acota cuánto tarda una réplica en enterarse de un cambio hecho en otra.
+ */
+@Component
+public class CredentialVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Long> versions;
+
+    public CredentialVersionRegistry(
+            UserRepository userRepository,
+            @Value("${jwt.stateless.version-cache-size:100000}") long maxSize,
+            @Value("${jwt.stateless.version-ttl:1m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        // Carga única por usuario aunque lleguen muchos requests a la vez
+        Long known = versions.get(userId, this::loadVersion);
+        if (known == null) {
+            return false; // el usuario ya no existe
+        }
+        if (known == tokenVersion) {
+            return true;
+        }
+        if (tokenVersion < known) {
+            return false;
+        }
+
+        // El token es más nuevo que lo que sabemos: otra réplica cambió la versión
+        Long current = loadVersion(userId);
+        if (current == null) {
+            versions.invalidate(userId);
+            return false;
+        }
+        versions.put(userId, current);
+        return current == tokenVersion;
+    }
+
+    public void update(Long userId, long credentialVersion) {
+        versions.put(userId, credentialVersion);
+    }
+
+    private Long loadVersion(Long userId) {
+        return userRepository.findCredentialVersionById(userId).orElse(null);
+    }
+}
@@ -0,0 +1,252 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage;
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage.Status;
+import com.fedeherrera.spring_secure_api_starter.repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Despacha email_outbox en lotes:
+ * 1. Toma hasta batchSize mensajes vencidos (SKIP LOCKED) y corre su next_attempt_at un
+ *    "lease": si la réplica muere a mitad del envío, otra los retoma al vencer
+ * 2. Envía el lote con una sola llamada a JavaMailSender, que reutiliza la conexión SMTP
+ * 3. Marca los enviados y reprograma los fallidos con backoff exponencial; después de
+ *    maxAttempts intentos el mensaje queda en DEAD para revisión manual. Los enviados
+ *    quedan sin cuerpo
+ * El envío ocurre fuera de cualquier transacción.
+ */
+@Slf4j
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration shutdownTimeout;
+
+    // Evita que el drenado del shutdown y el @Scheduled despachen a la vez
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Timer sendTimer;
+    private final Timer deliveryLag;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository outboxRepository,
+            JavaMailSender mailSender,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+            @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${app.mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${app.mail.outbox.max-backoff:1h}") Duration maxBackoff,
+            @Value("${app.mail.outbox.lease:5m}") Duration lease,
+            @Value("${app.mail.outbox.shutdown-timeout:15s}") Duration shutdownTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get)
+                .description("Emails pendientes en email_outbox")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("email.outbox.send")
+                .description("Duración del envío SMTP de un lote")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("email.outbox.lag")
+                .description("Tiempo desde que se encola un email hasta que se envía")
+                .register(meterRegistry);
+        this.sent = meterRegistry.counter("email.outbox.messages", "result", "sent");
+        this.retried = meterRegistry.counter("email.outbox.messages", "result", "retry");
+        this.dead = meterRegistry.counter("email.outbox.messages", "result", "dead");
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:2s}")
+    public void dispatch() {
+        if (!dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            while (dispatchBatch() == batchSize) {
+                // lote completo: probablemente hay más
+            }
+            pending.set(outboxRepository.countByStatus(Status.PENDING));
+        } catch (RuntimeException e) {
+            log.error("Error despachando email_outbox: {}", e.getMessage(), e);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Antes de cerrar la aplicación intenta enviar lo que quedó pendiente.
+     */
+    @PreDestroy
+    public void drain() {
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        try {
+            if (!dispatchLock.tryLock(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            while (System.nanoTime() < deadline && dispatchBatch() > 0) {
+                // seguir hasta vaciar la cola o agotar el tiempo
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo drenar email_outbox al apagar: {}", e.getMessage());
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Procesa un lote. Devuelve cuántos mensajes se tomaron.
+     */
+    int dispatchBatch() {
+        List<EmailOutboxMessage> batch = claim();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<SimpleMailMessage, EmailOutboxMessage> byMail = new IdentityHashMap<>();
+        for (EmailOutboxMessage message : batch) {
+            byMail.put(toMail(message), message);
+        }
+
+        Map<EmailOutboxMessage, Exception> failures = new IdentityHashMap<>();
+        long start = System.nanoTime();
+        try {
+            mailSender.send(byMail.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                batch.forEach(m -> failures.put(m, e));
+            } else {
+                e.getFailedMessages().forEach((mail, error) -> {
+                    EmailOutboxMessage message = byMail.get(mail);
+                    if (message != null) {
+                        failures.put(message, error);
+                    }
+                });
+            }
+        } catch (MailException e) {
+            // Conexión o autenticación: no salió ninguno
+            batch.forEach(m -> failures.put(m, e));
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        complete(batch, failures);
+        return batch.size();
+    }
+
+    private List<EmailOutboxMessage> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutboxMessage> due = outboxRepository.findDueForUpdate(
+                    Status.PENDING, now, PageRequest.of(0, batchSize));
+            for (EmailOutboxMessage message : due) {
+                message.setNextAttemptAt(now.plus(lease));
+            }
+            return new ArrayList<>(outboxRepository.saveAll(due));
+        });
+    }
+
+    private void complete(List<EmailOutboxMessage> batch, Map<EmailOutboxMessage, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        for (EmailOutboxMessage message : batch) {
+            Exception error = failures.get(message);
+            if (error == null) {
+                message.setStatus(Status.SENT);
+                message.setSentAt(now);
+                message.setLastError(null);
+                // El cuerpo tiene el token en claro: una vez enviado no hace falta guardarlo
+                message.setBody(null);
+                deliveryLag.record(Duration.between(message.getCreatedAt(), now));
+                sent.increment();
+                continue;
+            }
+
+            message.setAttempts(message.getAttempts() + 1);
+            message.setLastError(truncate(error.getMessage()));
+            if (message.getAttempts() >= maxAttempts) {
+                message.setStatus(Status.DEAD);
+                dead.increment();
+                log.error("Email {} a {} descartado tras {} intentos: {}",
+                        message.getId(), message.getRecipient(), message.getAttempts(), error.getMessage());
+            } else {
+                message.setNextAttemptAt(now.plus(backoff(message.getAttempts())));
+                retried.increment();
+                log.warn("Email {} falló (intento {}), se reintenta: {}",
+                        message.getId(), message.getAttempts(), error.getMessage());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static SimpleMailMessage toMail(EmailOutboxMessage message) {
+        SimpleMailMessage mail = new SimpleMailMessage();
+        mail.setTo(message.getRecipient());
+        mail.setSubject(message.getSubject());
+        mail.setText(message.getBody());
+        return mail;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
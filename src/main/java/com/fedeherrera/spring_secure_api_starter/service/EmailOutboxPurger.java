@@ -0,0 +1,91 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.repository.EmailOutboxRepository;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Borra periódicamente de email_outbox los mensajes SENT y DEAD más viejos que retention.
+ * Los DEAD conservan el cuerpo (con el link) para revisión manual solo hasta entonces.
+ * - Lotes de batchSize filas con un DELETE ... LIMIT, cada uno en su propia transacción
+ * - Un lock en scheduler_lock hace que corra en una sola réplica
+ * - max-duration corta la pasada; lo que quede se borra en la siguiente
+ */
+@Slf4j
+@Component
+public class EmailOutboxPurger {
+
+    static final String LOCK_NAME = "email-outbox-purge";
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JdbcLeaseLock leaseLock;
+    private final Duration retention;
+    private final int batchSize;
+    private final Duration maxDuration;
+
+    private final Counter purged;
+    private final Timer batchTimer;
+
+    public EmailOutboxPurger(
+            EmailOutboxRepository outboxRepository,
+            JdbcLeaseLock leaseLock,
+            MeterRegistry meterRegistry,
+            @Value("${app.mail.outbox.purge.retention:7d}") Duration retention,
+            @Value("${app.mail.outbox.purge.batch-size:1000}") int batchSize,
+            @Value("${app.mail.outbox.purge.max-duration:2m}") Duration maxDuration) {
+        this.outboxRepository = outboxRepository;
+        this.leaseLock = leaseLock;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxDuration = maxDuration;
+        this.purged = Counter.builder("email.outbox.purged")
+                .description("Mensajes SENT y DEAD eliminados de email_outbox")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("email.outbox.purge.batch")
+                .description("Duración de cada DELETE por lotes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.mail.outbox.purge.cron:0 */30 * * * *}")
+    public void purgeFinished() {
+        // El lease cubre la pasada completa con margen
+        if (!leaseLock.tryAcquire(LOCK_NAME, maxDuration.multipliedBy(2))) {
+            return;
+        }
+        try {
+            int total = purge(LocalDateTime.now().minus(retention));
+            if (total > 0) {
+                log.info("Purga de email_outbox: {} mensajes eliminados", total);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error purgando email_outbox: {}", e.getMessage(), e);
+        } finally {
+            leaseLock.release(LOCK_NAME);
+        }
+    }
+
+    int purge(LocalDateTime cutoff) {
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        int total = 0;
+        int deleted;
+        do {
+            long start = System.nanoTime();
+            deleted = outboxRepository.deleteFinishedBatch(cutoff, batchSize);
+            batchTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            purged.increment(deleted);
+            total += deleted;
+        } while (deleted == batchSize && System.nanoTime() < deadline);
+        return total;
+    }
+}
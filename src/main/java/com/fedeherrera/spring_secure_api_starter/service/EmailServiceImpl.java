@@ -1,22 +1,39 @@
 package com.fedeherrera.spring_secure_api_starter.service;
-import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage;
+import com.fedeherrera.spring_secure_api_starter.repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
+/**
+ * Los emails no se envían acá: se guardan en email_outbox dentro de la transacción
+ * del llamador y EmailOutboxDispatcher los despacha. Un SMTP lento o caído ya no
+ * bloquea ni hace fallar el registro. El envío SMTP se mide en email.outbox.send;
+ * acá solo el insert, que es lo que paga el request.
+ */
 @Service
-@RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxRepository outboxRepository;
+    private final Timer enqueueTimer;
+
+    public EmailServiceImpl(EmailOutboxRepository outboxRepository, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.enqueueTimer = Timer.builder("email.outbox.enqueue")
+                .description("Alta de un email en email_outbox dentro de la transacción del llamador")
+                .register(meterRegistry);
+    }
 
     @Override
+    @Transactional
     public void sendEmail(String to, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-        mailSender.send(message);
+        enqueueTimer.record(() -> outboxRepository.save(EmailOutboxMessage.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .build()));
     }
 
    @Override
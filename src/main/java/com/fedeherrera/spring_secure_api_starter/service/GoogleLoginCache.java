@@ -0,0 +1,90 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * ID tokens de Google ya verificados -> usuario al que quedaron vinculados.
+ * Los clientes móviles reintentan /auth/google/login con el mismo idToken: el reintento
+ * no vuelve a verificar la firma ni a buscar o crear el usuario.
+ * - Clave: SHA-256 del token (no se guarda el token en memoria)
+ * - Cada entrada vence en el "exp" del token: nunca se acepta un token vencido
+ */
+@Component
+public class GoogleLoginCache {
+
+    private final Cache<ByteBuffer, Entry> entries;
+
+    public GoogleLoginCache(
+            MeterRegistry meterRegistry,
+            @Value("${google.oauth2.login-cache.max-size:10000}") long maxSize) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "auth.google.login");
+    }
+
+    public Optional<Entry> get(String idToken) {
+        return Optional.ofNullable(entries.getIfPresent(digest(idToken)));
+    }
+
+    public void put(String idToken, GoogleIdToken.Payload payload, Long userId, String username) {
+        Long exp = payload.getExpirationTimeSeconds();
+        if (exp == null || exp * 1000 <= System.currentTimeMillis()) {
+            return;
+        }
+        entries.put(digest(idToken), new Entry(payload, userId, username, exp * 1000));
+    }
+
+    public void invalidate(String idToken) {
+        entries.invalidate(digest(idToken));
+    }
+
+    private static ByteBuffer digest(String idToken) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(idToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public record Entry(GoogleIdToken.Payload payload, Long userId, String username, long expiresAtMillis) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, Entry> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Entry value, long currentTime) {
+            long remaining = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Entry value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
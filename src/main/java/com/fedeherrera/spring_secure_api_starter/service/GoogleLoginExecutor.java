@@ -0,0 +1,107 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.config.RequestContextTaskDecorator;
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool acotado para los logins con Google. El thread de Tomcat devuelve un CompletableFuture
+ * y queda libre mientras se verifica el token contra Google.
+ * - Como mucho maxConcurrency logins en curso y queueCapacity esperando; más allá, 503 inmediato
+ * - Cada login tiene un timeout; si Google no responde a tiempo, también 503
+ * Métricas: auth.google.login.queue (espera en la cola) y auth.google.verify (tiempo en Google).
+ */
+@Component
+public class GoogleLoginExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final RequestContextTaskDecorator taskDecorator = new RequestContextTaskDecorator();
+    private final Duration timeout;
+
+    private final Timer queueTimer;
+    private final Counter rejectedBusy;
+    private final Counter rejectedTimeout;
+
+    public GoogleLoginExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${google.oauth2.login.max-concurrency:32}") int maxConcurrency,
+            @Value("${google.oauth2.login.queue-capacity:100}") int queueCapacity,
+            @Value("${google.oauth2.login.timeout:5s}") Duration timeout) {
+        this.timeout = timeout;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "google-login-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueTimer = Timer.builder("auth.google.login.queue")
+                .description("Espera en la cola del pool de login con Google")
+                .register(meterRegistry);
+        this.rejectedBusy = meterRegistry.counter("auth.google.login.rejected", "reason", "busy");
+        this.rejectedTimeout = meterRegistry.counter("auth.google.login.rejected", "reason", "timeout");
+        meterRegistry.gauge("auth.google.login.queue.depth", executor, e -> e.getQueue().size());
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long enqueued = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(taskDecorator.decorate(() -> {
+                queueTimer.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                if (future.isDone()) {
+                    return; // ya venció esperando en la cola
+                }
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejectedBusy.increment();
+            throw new ServiceBusyException("Demasiados logins con Google en curso, intenta de nuevo en unos segundos", e);
+        }
+
+        return future
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof TimeoutException) {
+                        rejectedTimeout.increment();
+                        throw new ServiceBusyException("Google no respondió a tiempo, intenta de nuevo", cause);
+                    }
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,23 +1,41 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;  
 
 import com.fedeherrera.spring_secure_api_starter.config.GoogleAuthProperties;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+@Slf4j
 @Service
 @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(name = "google.oauth2.client.id")
 public class GoogleTokenVerifierService {
 
     private final GoogleAuthProperties properties;
+    // Compartidos (ver GoogleIdTokenConfig): los certificados de Google quedan cacheados entre logins
+    private final GoogleIdTokenVerifier verifier;
+    private final GooglePublicKeysManager publicKeysManager;
+    // Tiempo de verificación, incluido el fetch de certificados cuando hace falta
+    private final Timer verifyTimer;
 
-    public GoogleTokenVerifierService(GoogleAuthProperties properties) {
+    public GoogleTokenVerifierService(GoogleAuthProperties properties,
+            GoogleIdTokenVerifier verifier,
+            GooglePublicKeysManager publicKeysManager,
+            MeterRegistry meterRegistry) {
         this.properties = properties;
+        this.verifier = verifier;
+        this.publicKeysManager = publicKeysManager;
+        this.verifyTimer = Timer.builder("auth.google.verify")
+                .description("Verificación del ID token contra Google")
+                .register(meterRegistry);
     }
 
   public GoogleIdToken.Payload verify(String idTokenString) {
@@ -27,15 +45,14 @@ public class GoogleTokenVerifierService {
             throw new BadCredentialsException("El token no puede estar vacío");
         }
 
-        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(
-                new NetHttpTransport(),
-                JacksonFactory.getDefaultInstance()
-        )
-        .setAudience(List.of(properties.getId()))
-        .build();
-
         // Verificación del token
-        GoogleIdToken idToken = verifier.verify(idTokenString);
+        long start = System.nanoTime();
+        GoogleIdToken idToken;
+        try {
+            idToken = verifier.verify(idTokenString);
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
         
         if (idToken == null) {
             throw new BadCredentialsException("No se pudo verificar el token de Google");
@@ -59,4 +76,17 @@ public class GoogleTokenVerifierService {
         throw new BadCredentialsException(errorMsg, e);
     }
 }
+
+    /**
+     * getPublicKeys() renueva los certificados cuando faltan menos de 5 minutos para que
+     * venzan. Llamarlo periódicamente hace que esa renovación ocurra acá y no en un login.
+     */
+    @Scheduled(fixedDelayString = "${google.oauth2.certs-refresh-interval:1m}")
+    public void refreshCertificates() {
+        try {
+            publicKeysManager.getPublicKeys();
+        } catch (Exception e) {
+            log.warn("No se pudieron renovar los certificados de Google: {}", e.getMessage());
+        }
+    }
 }
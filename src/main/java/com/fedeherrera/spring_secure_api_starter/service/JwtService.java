@@ -1,20 +1,32 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
-import java.security.Key;
 import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import com.fedeherrera.spring_secure_api_starter.entity.User;
 import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.JwtKeyRing;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.VerifiedTokenCache;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken.FailureReason;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import io.jsonwebtoken.SignatureAlgorithm;
 import java.util.HashMap;
@@ -25,8 +37,17 @@ import java.util.function.Function;
 @Slf4j
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    // Claims propios: permiten autenticar sin ir a la DB (modo stateless)
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_CREDENTIAL_VERSION = "cv";
+    // Solo en refresh tokens: familia (sesión) y generación dentro de la familia
+    public static final String CLAIM_FAMILY_ID = "fid";
+    public static final String CLAIM_GENERATION = "gen";
+    // Tipo de token: un refresh no sirve como bearer ni un access token en /auth/refresh-token
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String TOKEN_TYPE_ACCESS = "access";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
@@ -34,6 +55,31 @@ public class JwtService {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
 
+    private final JwtKeyRing keyRing;
+
+    // JwtParser es inmutable y thread-safe: se construye una sola vez y se reutiliza
+    private final JwtParser parser;
+
+    private final VerifiedTokenCache tokenCache;
+
+    private final RoleCatalog roleCatalog;
+
+    // La verificación se mide en VerifiedTokenCache (auth.jwt.verify); acá solo la firma
+    private final Timer signAccess;
+    private final Timer signRefresh;
+
+    public JwtService(JwtKeyRing keyRing, VerifiedTokenCache tokenCache, RoleCatalog roleCatalog,
+            MeterRegistry meterRegistry) {
+        this.keyRing = keyRing;
+        this.tokenCache = tokenCache;
+        this.roleCatalog = roleCatalog;
+        this.signAccess = signTimer(meterRegistry, "access");
+        this.signRefresh = signTimer(meterRegistry, "refresh");
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+    }
+
     // 1. Extraer el nombre de usuario (subject)
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -51,76 +97,164 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return signAccess.record(() -> buildToken(extraClaims, userDetails, jwtExpiration, TOKEN_TYPE_ACCESS));
     }
 
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+    public String generateRefreshToken(UserDetails userDetails, long familyId, long generation) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_FAMILY_ID, familyId);
+        claims.put(CLAIM_GENERATION, generation);
+        return signRefresh.record(() -> buildToken(claims, userDetails, refreshExpiration, TOKEN_TYPE_REFRESH));
     }
 
-    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
+    private static Timer signTimer(MeterRegistry meterRegistry, String type) {
+        return Timer.builder("auth.jwt.sign")
+                .description("Construcción y firma de un JWT")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration, String type) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put(CLAIM_TOKEN_TYPE, type);
+        if (userDetails instanceof UserPrincipal principal) {
+            claims.put(CLAIM_USER_ID, principal.getId());
+            claims.put(CLAIM_ROLES, principal.getRoleNames());
+            claims.put(CLAIM_CREDENTIAL_VERSION, principal.getCredentialVersion());
+        }
+
         return Jwts.builder()
-                .setClaims(extraClaims)
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+                .setClaims(claims)
+                .setId(UUID.randomUUID().toString()) // jti: permite revocar este token puntualmente
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(keyRing.getActiveKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     // 4. VALIDACIÓN MATEMÁTICA (Sin base de datos)
-    // Se usa en el filtro para descartar basura rápidamente
-    public boolean isTokenSignatureValid(String token) {
+    // Parsea y verifica la firma UNA sola vez; el resultado se reutiliza en el resto del flujo
+    public ValidatedToken validate(String token) {
+        if (token == null || token.isBlank()) {
+            return ValidatedToken.failed(FailureReason.MISSING);
+        }
+
+        // Mismo token reutilizado durante toda su vida: no se vuelve a verificar la firma
+        ValidatedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        ValidatedToken result = parseAndVerify(token);
+        tokenCache.put(token, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private ValidatedToken parseAndVerify(String token) {
         try {
-            extractAllClaims(token); // Si el token es inválido o expiró, lanza excepción
-            return true;
-        } catch (Exception e) {
+            return ValidatedToken.of(extractAllClaims(token));
+        } catch (ExpiredJwtException e) {
+            return ValidatedToken.failed(FailureReason.EXPIRED);
+        } catch (SecurityException e) {
+            return ValidatedToken.failed(FailureReason.INVALID_SIGNATURE);
+        } catch (UnsupportedJwtException e) {
+            return ValidatedToken.failed(FailureReason.UNSUPPORTED);
+        } catch (JwtException | IllegalArgumentException e) {
+            return ValidatedToken.failed(FailureReason.MALFORMED);
+        }
+    }
+
+    /**
+     * Los tokens anteriores al claim "typ" se distinguen por su duración: un refresh token
+     * vive refresh-expiration, bastante más que un access token.
+     */
+    public boolean isRefreshToken(ValidatedToken token) {
+        if (!token.isValid()) {
             return false;
         }
+        String type = token.claim(CLAIM_TOKEN_TYPE, String.class);
+        if (type != null) {
+            return TOKEN_TYPE_REFRESH.equals(type);
+        }
+        // iat/exp van en segundos enteros: se compara contra el punto medio y no contra jwtExpiration,
+        // que un access token puede superar por un segundo de redondeo
+        return token.issuedAt() != null && token.expiration() != null
+                && token.expiration().getTime() - token.issuedAt().getTime() > (jwtExpiration + refreshExpiration) / 2;
+    }
+
+    public boolean isTokenSignatureValid(String token) {
+        return validate(token).isValid();
     }
 
     // 5. VALIDACIÓN FINAL (Con base de datos)
     public boolean isTokenValid(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    final Date issuedAt = extractClaim(token, Claims::getIssuedAt);
-    
-   if (userDetails instanceof UserPrincipal principal) {
-        User user = principal.getUser(); // Obtenemos la entidad User
-        
-        if (user.getPasswordChangedAt() != null) {
-            Date lastPasswordChange = Date.from(user.getPasswordChangedAt()
-                    .atZone(ZoneId.systemDefault()).toInstant());
-            
-            // Si el token se emitió ANTES del cambio de password, es inválido
-            if (issuedAt.before(lastPasswordChange)) {
-                log.warn("Token rechazado para el usuario {}: emitido antes del último cambio de contraseña.", username);
-                return false; 
-            }
-        }
+        return isTokenValid(validate(token), userDetails);
     }
 
-    return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-}
+    // Usa los claims ya verificados: no vuelve a parsear ni a chequear la firma
+    public boolean isTokenValid(ValidatedToken token, UserDetails userDetails) {
+        if (!token.isValid()) {
+            return false;
+        }
+        final String username = token.subject();
+        final Date issuedAt = token.issuedAt();
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        if (userDetails instanceof UserPrincipal principal) {
+            Long tokenVersion = token.claim(CLAIM_CREDENTIAL_VERSION, Long.class);
+
+            if (tokenVersion != null) {
+                // Si las credenciales cambiaron después de emitir el token, es inválido
+                if (tokenVersion != principal.getCredentialVersion()) {
+                    log.warn("Token rechazado para el usuario {}: versión de credenciales obsoleta.", username);
+                    return false;
+                }
+            } else if (principal.getPasswordChangedAt() != null && issuedAt != null) {
+                // Tokens emitidos antes del claim "cv": se compara contra passwordChangedAt
+                Date lastPasswordChange = Date.from(principal.getPasswordChangedAt()
+                        .atZone(ZoneId.systemDefault()).toInstant());
+
+                // Si el token se emitió ANTES del cambio de password, es inválido
+                if (issuedAt.before(lastPasswordChange)) {
+                    log.warn("Token rechazado para el usuario {}: emitido antes del último cambio de contraseña.", username);
+                    return false;
+                }
+            }
+        }
+
+        return username != null
+                && username.equals(userDetails.getUsername())
+                && (token.expiration() == null || !token.expiration().before(new Date()));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // Arma el principal solo con los claims (sin DB). Vacío si el token no los trae.
+    // enabled va en true: habilitar o deshabilitar la cuenta sube la versión de credenciales,
+    // así que un token emitido antes del cambio no pasa CredentialVersionRegistry
+    public Optional<UserPrincipal> toPrincipal(ValidatedToken token) {
+        if (!token.isValid()) {
+            return Optional.empty();
+        }
+        Long userId = token.claim(CLAIM_USER_ID, Long.class);
+        Long credentialVersion = token.claim(CLAIM_CREDENTIAL_VERSION, Long.class);
+        Collection<?> roles = token.claim(CLAIM_ROLES, List.class);
+        if (userId == null || credentialVersion == null || roles == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new UserPrincipal(
+                userId,
+                token.subject(),
+                null,
+                true,
+                credentialVersion,
+                null,
+                roleCatalog.authorities(roles.stream().map(String::valueOf).toList())));
     }
 
     // 6. El "Corazón": Abre el token usando la firma
+    // La clave se elige por el "kid" del header (activa o retirada)
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return parser.parseClaimsJws(token).getBody();
     }
 }
\ No newline at end of file
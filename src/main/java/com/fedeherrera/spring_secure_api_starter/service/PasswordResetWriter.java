@@ -0,0 +1,40 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken.TokenType;
+import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Parte transaccional del reset de contraseña: consumir el token y guardar el password nuevo
+ * se confirman juntos. El password llega ya hasheado; BCrypt corre antes de abrir la
+ * transacción, así un ServiceBusyException del pool no deja el token consumido a medias.
+ */
+@Component
+@RequiredArgsConstructor
+public class PasswordResetWriter {
+
+    private final VerificationService verificationService;
+    private final UserRepository userRepository;
+
+    @Transactional
+    public User apply(String token, String passwordHash) {
+        // Consumir el token primero: dos requests con el mismo link no pueden cambiar la contraseña dos veces
+        User user = verificationService.consumeToken(token, TokenType.PASSWORD_RESET)
+                .flatMap(userRepository::findById)
+                .orElseThrow(() -> new RegistrationException("Token inválido o expirado"));
+
+        user.setPassword(passwordHash);
+        user.setPasswordChangedAt(LocalDateTime.now()); // 👈 Aquí invalidamos los tokens anteriores
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
+
+        return userRepository.save(user);
+    }
+}
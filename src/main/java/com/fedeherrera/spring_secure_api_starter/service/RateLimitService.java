@@ -1,32 +1,46 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
-import java.time.Duration;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.stereotype.Service;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitBackend;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitPolicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 
 @Service
 public class RateLimitService {
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    // memory o jdbc según app.rate-limit.backend
+    private final RateLimitBackend backend;
+
+    // Registrados una vez por política: el camino caliente no busca meters en el registry
+    private final Map<RateLimitPolicy, Counter> allowed = new EnumMap<>(RateLimitPolicy.class);
+    private final Map<RateLimitPolicy, Counter> denied = new EnumMap<>(RateLimitPolicy.class);
+
+    public RateLimitService(RateLimitBackend backend, MeterRegistry meterRegistry) {
+        this.backend = backend;
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            allowed.put(policy, counter(meterRegistry, policy, "allowed"));
+            denied.put(policy, counter(meterRegistry, policy, "denied"));
+        }
+    }
 
-    // Actualizamos la firma del método para aceptar la capacidad (limit)
-    public Bucket resolveBucket(String ip, int limit) {
-        // Usamos una clave combinada para que una IP pueda tener 
-        // distintos baldes según el límite (ej. "192.168.1.1-5" y "192.168.1.1-50")
-        String key = ip + "-" + limit;
-        return cache.computeIfAbsent(key, k -> createNewBucket(limit));
+    public boolean tryConsume(long clientKey, RateLimitPolicy policy) {
+        boolean consumed = backend.tryConsume(clientKey, policy);
+        (consumed ? allowed : denied).get(policy).increment();
+        return consumed;
     }
 
-    private Bucket createNewBucket(int limit) {
-        return Bucket.builder()
-                .addLimit(Bandwidth.classic(limit, Refill.intervally(limit, Duration.ofMinutes(1))))
-                .build();
+    private static Counter counter(MeterRegistry meterRegistry, RateLimitPolicy policy, String result) {
+        return Counter.builder("auth.ratelimit.requests")
+                .description("Requests evaluados por el rate limiter")
+                .tag("policy", policy.name().toLowerCase())
+                .tag("result", result)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.exception.AuthException;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.refresh.RefreshTokenFamilyStore;
+import com.fedeherrera.spring_secure_api_starter.security.refresh.RefreshTokenFamilyStore.Rotation;
+import com.fedeherrera.spring_secure_api_starter.security.refresh.RevokedFamilyIndex;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refresh tokens rotativos agrupados en familias (una por login).
+ * - Cada refresh entrega un refresh token nuevo; el anterior deja de servir
+ * - Presentar un token ya rotado revoca la familia entera (el token pudo haber sido robado)
+ * - Las familias revocadas se guardan en un índice en memoria: esos refresh se rechazan
+ *   sin ir a la DB. El resto se decide con un único UPDATE sobre refresh_token_family
+ * Cada réplica incorpora periódicamente las revocaciones hechas por las demás.
+ * Los refresh tokens anteriores a las familias (sin "fid") solo se aceptan si se emitieron
+ * antes de jwt.refresh-family.legacy-cutover, y cada uno se canjea una única vez.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    static final String PURGE_LOCK_NAME = "refresh-token-family-purge";
+
+    private final RefreshTokenFamilyStore store;
+    private final RevokedFamilyIndex revokedIndex;
+    private final JwtService jwtService;
+    private final AccessTokenRevocationService revocationService;
+    private final JdbcLeaseLock leaseLock;
+
+    private final Duration ttl;
+    private final Duration reuseGrace;
+    private final Duration syncOverlap;
+    private final int purgeBatchSize;
+    // null = no se aceptan refresh tokens legacy
+    private final Instant legacyCutover;
+
+    private final Map<Rotation, Counter> rotations = new EnumMap<>(Rotation.class);
+    private final Counter rejectedFromIndex;
+    private final Counter legacy;
+    private final Counter legacyRejected;
+
+    private volatile LocalDateTime lastSync;
+
+    public RefreshTokenService(
+            RefreshTokenFamilyStore store,
+            JwtService jwtService,
+            AccessTokenRevocationService revocationService,
+            JdbcLeaseLock leaseLock,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.refresh-expiration}") long refreshExpirationMillis,
+            @Value("${jwt.refresh-family.reuse-grace:5s}") Duration reuseGrace,
+            @Value("${jwt.refresh-family.sync-overlap:10s}") Duration syncOverlap,
+            @Value("${jwt.refresh-family.index.buckets:24}") int indexBuckets,
+            @Value("${jwt.refresh-family.index.max-entries:1000000}") int indexMaxEntries,
+            @Value("${jwt.refresh-family.purge.batch-size:1000}") int purgeBatchSize,
+            @Value("${jwt.refresh-family.legacy-cutover:}") String legacyCutover) {
+        this.store = store;
+        this.jwtService = jwtService;
+        this.revocationService = revocationService;
+        this.leaseLock = leaseLock;
+        this.ttl = Duration.ofMillis(refreshExpirationMillis);
+        this.reuseGrace = reuseGrace;
+        this.syncOverlap = syncOverlap;
+        this.purgeBatchSize = purgeBatchSize;
+        this.legacyCutover = legacyCutover.isBlank() ? null : Instant.parse(legacyCutover);
+        this.revokedIndex = new RevokedFamilyIndex(ttl, indexBuckets, indexMaxEntries, Clock.systemDefaultZone());
+
+        for (Rotation rotation : Rotation.values()) {
+            rotations.put(rotation, Counter.builder("auth.refresh.rotation")
+                    .tag("result", rotation.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.rejectedFromIndex = Counter.builder("auth.refresh.rotation")
+                .tag("result", "revoked_cached")
+                .register(meterRegistry);
+        this.legacy = Counter.builder("auth.refresh.rotation")
+                .tag("result", "legacy")
+                .register(meterRegistry);
+        this.legacyRejected = Counter.builder("auth.refresh.rotation")
+                .tag("result", "legacy_rejected")
+                .register(meterRegistry);
+        Gauge.builder("auth.refresh.revoked.index.size", revokedIndex, RevokedFamilyIndex::size)
+                .description("Familias revocadas en el índice en memoria")
+                .register(meterRegistry);
+        Gauge.builder("auth.refresh.revoked.index.bytes", revokedIndex, RevokedFamilyIndex::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.refresh.revoked.index.evictions", revokedIndex,
+                        RevokedFamilyIndex::capacityEvictions)
+                .description("Familias descartadas del índice por el tope de entradas")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre una sesión nueva para el usuario y devuelve su primer refresh token.
+     */
+    public String issue(UserPrincipal principal) {
+        long familyId = store.create(principal.getId(), ttl);
+        return jwtService.generateRefreshToken(principal, familyId, 0);
+    }
+
+    /**
+     * Consume un refresh token ya verificado (firma, vencimiento y versión de credenciales)
+     * y devuelve el siguiente de la familia.
+     */
+    public String rotate(ValidatedToken token, UserPrincipal principal) {
+        if (!jwtService.isRefreshToken(token)) {
+            throw new AuthException("Refresh token inválido o expirado");
+        }
+        Long familyId = token.claim(JwtService.CLAIM_FAMILY_ID, Long.class);
+        Long generation = token.claim(JwtService.CLAIM_GENERATION, Long.class);
+        if (familyId == null || generation == null) {
+            return exchangeLegacy(token, principal);
+        }
+
+        if (revokedIndex.contains(familyId)) {
+            rejectedFromIndex.increment();
+            throw new AuthException("Sesión inválida, por favor inicie sesión nuevamente");
+        }
+
+        Rotation result = store.rotate(familyId, generation, ttl, reuseGrace);
+        rotations.get(result).increment();
+        switch (result) {
+            case ROTATED:
+                return jwtService.generateRefreshToken(principal, familyId, generation + 1);
+            case REUSED:
+                log.warn("Refresh token reutilizado para el usuario {}: familia {} revocada", principal.getUsername(), familyId);
+                revokedIndex.add(familyId, System.currentTimeMillis());
+                break;
+            case REVOKED:
+                revokedIndex.add(familyId, System.currentTimeMillis());
+                break;
+            default:
+                break;
+        }
+        throw new AuthException("Sesión inválida, por favor inicie sesión nuevamente");
+    }
+
+    /**
+     * Refresh token emitido antes de las familias: se canjea una vez por una familia nueva.
+     * El canje queda registrado en revoked_access_token (solo la tabla, no el Bloom filter) hasta
+     * el "exp" del token; la PK decide quién lo canjea.
+     */
+    private String exchangeLegacy(ValidatedToken token, UserPrincipal principal) {
+        if (legacyCutover == null || token.issuedAt() == null || token.expiration() == null
+                || !token.issuedAt().toInstant().isBefore(legacyCutover)
+                || !revocationService.markConsumed(legacyId(token), principal.getId(), token.expiration().getTime())) {
+            legacyRejected.increment();
+            throw new AuthException("Sesión inválida, por favor inicie sesión nuevamente");
+        }
+        legacy.increment();
+        return issue(principal);
+    }
+
+    // Los refresh tokens legacy no traen jti: se deriva uno estable (36 caracteres) de subject + iat
+    static String legacyId(ValidatedToken token) {
+        if (token.jti() != null) {
+            return token.jti();
+        }
+        String key = "legacy-refresh|" + token.subject() + "|" + token.issuedAt().getTime();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Cierra la sesión a la que pertenece un refresh token ya verificado (logout).
+     */
+    public void revoke(ValidatedToken token) {
+        Long familyId = token.claim(JwtService.CLAIM_FAMILY_ID, Long.class);
+        if (familyId != null) {
+            revoke(familyId);
+        }
+    }
+
+    public void revoke(long familyId) {
+        if (store.revoke(familyId)) {
+            revokedIndex.add(familyId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Cierra todas las sesiones del usuario (ej. tras un cambio de contraseña).
+     */
+    public void revokeAll(Long userId) {
+        long now = System.currentTimeMillis();
+        for (Long familyId : store.revokeAllForUser(userId)) {
+            revokedIndex.add(familyId, now);
+        }
+    }
+
+    /**
+     * Trae las revocaciones hechas por otras réplicas. La primera pasada carga todas las
+     * que todavía pueden tener tokens vigentes.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-family.sync-interval:30s}")
+    public void syncRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync == null ? now.minus(ttl) : lastSync.minus(syncOverlap);
+        try {
+            store.forEachRevokedSince(since,
+                    (familyId, revokedAt) -> revokedIndex.add(familyId, store.toEpochMillis(revokedAt)));
+            revokedIndex.expire();
+            lastSync = now;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo sincronizar las familias revocadas: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${jwt.refresh-family.purge.cron:0 */15 * * * *}")
+    public void purgeExpired() {
+        if (!leaseLock.tryAcquire(PURGE_LOCK_NAME, Duration.ofMinutes(5))) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int total = 0;
+            int deleted;
+            do {
+                deleted = store.deleteExpiredBatch(now, purgeBatchSize);
+                total += deleted;
+            } while (deleted == purgeBatchSize);
+            if (total > 0) {
+                log.info("Purga de refresh tokens: {} familias vencidas eliminadas", total);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error purgando familias de refresh tokens: {}", e.getMessage(), e);
+        } finally {
+            leaseLock.release(PURGE_LOCK_NAME);
+        }
+    }
+}
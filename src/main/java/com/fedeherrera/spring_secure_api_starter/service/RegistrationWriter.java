@@ -0,0 +1,38 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.entity.User;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Parte transaccional del registro público: usuario, token de verificación y email pendiente
+ * se confirman juntos. El password llega ya hasheado; BCrypt corre antes de abrir la
+ * transacción para no retener una conexión del pool mientras tanto.
+ */
+@Component
+@RequiredArgsConstructor
+public class RegistrationWriter {
+
+    private final UserService userService;
+    private final VerificationService verificationService;
+    private final EmailService emailService;
+
+    @Transactional
+    public void insertPending(User user) {
+        // Insert optimista: los índices únicos de username/email detectan duplicados (sin exists previos)
+        userService.register(user);
+
+        String token = verificationService.createToken(user);
+        String verificationLink = "http://localhost:3000/auth/verify?token=" + token;
+
+        // Lo envía EmailOutboxDispatcher
+        emailService.sendEmail(
+                user.getEmail(),
+                "Verify your account",
+                "Click the link to verify your account: " + verificationLink
+        );
+    }
+}
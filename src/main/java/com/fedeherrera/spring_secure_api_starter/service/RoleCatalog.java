@@ -0,0 +1,196 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.RoleMask;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Catálogo de roles en memoria: la tabla roles es chica y casi estática (la siembra V2).
+ * - Se carga al arrancar en un snapshot inmutable (nombre -> Role, nombre y bit de
+ *   users.role_mask -> GrantedAuthority)
+ * - Las búsquedas no tocan la DB; un nombre desconocido recarga el snapshot como mucho una vez
+ *   por miss-reload-interval (un rol agregado por migración se ve en el primer uso)
+ * - refresh() reemplaza el snapshot entero; corre periódicamente para que las réplicas vean
+ *   renombres o bajas, y lo puede llamar cualquier código que modifique roles
+ * Los Role entregados son compartidos: no se deben modificar.
+ */
+@Slf4j
+@Component
+public class RoleCatalog {
+
+    private final RoleRepository roleRepository;
+    private final MeterRegistry meterRegistry;
+    private final long missReloadIntervalNanos;
+    private final AtomicLong lastMissReload = new AtomicLong(System.nanoTime());
+    private final Counter unknownNames;
+    private final Counter unknownBits;
+
+    private volatile Snapshot snapshot;
+
+    public RoleCatalog(
+            RoleRepository roleRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.roles.miss-reload-interval:30s}") Duration missReloadInterval) {
+        this.roleRepository = roleRepository;
+        this.meterRegistry = meterRegistry;
+        this.missReloadIntervalNanos = missReloadInterval.toNanos();
+        this.snapshot = load();
+        this.unknownNames = Counter.builder("auth.roles.catalog.unknown")
+                .description("Roles que no están en el catálogo")
+                .tag("source", "name")
+                .register(meterRegistry);
+        this.unknownBits = Counter.builder("auth.roles.catalog.unknown")
+                .description("Roles que no están en el catálogo")
+                .tag("source", "mask")
+                .register(meterRegistry);
+    }
+
+    // Fuera del constructor: el gauge guarda una referencia a this
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("auth.roles.catalog.size", this, catalog -> catalog.snapshot.roles().size())
+                .description("Roles cargados en memoria")
+                .register(meterRegistry);
+    }
+
+    public Optional<Role> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Role role = snapshot.roles().get(name);
+        if (role == null && reloadAfterMiss()) {
+            role = snapshot.roles().get(name);
+        }
+        return Optional.ofNullable(role);
+    }
+
+    /**
+     * Authorities para los nombres dados, reutilizando las instancias del catálogo.
+     * Un nombre que no está en el catálogo (p. ej. un rol borrado con tokens vigentes)
+     * se respeta igual: el catálogo no cambia qué puede hacer el usuario. Se cuenta en
+     * auth.roles.catalog.unknown{source=name}.
+     */
+    public Set<GrantedAuthority> authorities(Collection<String> names) {
+        Map<String, GrantedAuthority> authorities = snapshot.authorities();
+        return names.stream()
+                .map(name -> {
+                    GrantedAuthority authority = authorities.get(name);
+                    if (authority == null) {
+                        unknownNames.increment();
+                        return new SimpleGrantedAuthority(name);
+                    }
+                    return authority;
+                })
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Authorities de un users.role_mask. El Set se arma una vez por combinación de roles
+     * (en la práctica, un puñado) y se reutiliza en cada autenticación.
+     * Un bit sin rol en el catálogo (p. ej. un rol borrado) no tiene nombre que respetar: se
+     * descarta, se cuenta en auth.roles.catalog.unknown{source=mask} y se loguea una vez por mask.
+     */
+    public Set<GrantedAuthority> authorities(long roleMask) {
+        Snapshot current = snapshot;
+        if ((roleMask & ~current.knownBits()) != 0 && reloadAfterMiss()) {
+            // Bit de un rol creado después de la última carga
+            current = snapshot;
+        }
+        long unknown = roleMask & ~current.knownBits();
+        if (unknown != 0) {
+            unknownBits.increment();
+            if (current.unknownMasks().add(roleMask)) {
+                log.warn("role_mask {} tiene bits sin rol en el catálogo ({}): se ignoran",
+                        Long.toBinaryString(roleMask), Long.toBinaryString(unknown));
+            }
+        }
+        return current.byMask().computeIfAbsent(roleMask & current.knownBits(), current::toAuthorities);
+    }
+
+    @Scheduled(fixedDelayString = "${app.roles.refresh-interval:5m}",
+            initialDelayString = "${app.roles.refresh-interval:5m}")
+    public void refresh() {
+        try {
+            Snapshot loaded = load();
+            if (!loaded.roles().keySet().equals(snapshot.roles().keySet())) {
+                log.info("Catálogo de roles actualizado: {}", loaded.roles().keySet());
+            }
+            snapshot = loaded;
+        } catch (RuntimeException e) {
+            // Se sigue con el snapshot anterior
+            log.warn("No se pudo recargar el catálogo de roles: {}", e.getMessage());
+        }
+    }
+
+    private boolean reloadAfterMiss() {
+        long last = lastMissReload.get();
+        long now = System.nanoTime();
+        if (now - last < missReloadIntervalNanos || !lastMissReload.compareAndSet(last, now)) {
+            return false;
+        }
+        refresh();
+        return true;
+    }
+
+    private Snapshot load() {
+        List<Role> roles = roleRepository.findAll();
+        Map<String, Role> byName = new HashMap<>();
+        Map<String, GrantedAuthority> authorities = new HashMap<>();
+        GrantedAuthority[] byBit = new GrantedAuthority[Long.SIZE];
+        long knownBits = 0;
+        for (Role role : roles) {
+            GrantedAuthority authority = new SimpleGrantedAuthority(role.getName());
+            byName.put(role.getName(), role);
+            authorities.put(role.getName(), authority);
+            if (role.getId() != null && role.getId() >= 1 && role.getId() <= RoleMask.MAX_ROLE_ID) {
+                byBit[Long.numberOfTrailingZeros(RoleMask.bit(role.getId()))] = authority;
+                knownBits |= RoleMask.bit(role.getId());
+            } else {
+                log.warn("El rol {} (id {}) queda fuera de users.role_mask", role.getName(), role.getId());
+            }
+        }
+        return new Snapshot(Map.copyOf(byName), Map.copyOf(authorities), byBit, knownBits,
+                new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet());
+    }
+
+    private record Snapshot(
+            Map<String, Role> roles,
+            Map<String, GrantedAuthority> authorities,
+            GrantedAuthority[] byBit,
+            long knownBits,
+            Map<Long, Set<GrantedAuthority>> byMask,
+            Set<Long> unknownMasks) {
+
+        Set<GrantedAuthority> toAuthorities(long mask) {
+            Set<GrantedAuthority> result = new HashSet<>();
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                result.add(byBit[Long.numberOfTrailingZeros(bits)]);
+            }
+            return Set.copyOf(result);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
 import com.fedeherrera.spring_secure_api_starter.entity.Role;
-import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,10 +10,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class RoleServiceImpl implements RoleService {
 
-    private final RoleRepository roleRepository;
+    // Sin query por búsqueda: los roles se sirven desde el catálogo en memoria
+    private final RoleCatalog roleCatalog;
 
     @Override
     public Optional<Role> findByName(String name) {
-        return roleRepository.findByName(name);
+        return roleCatalog.findByName(name);
     }
 }
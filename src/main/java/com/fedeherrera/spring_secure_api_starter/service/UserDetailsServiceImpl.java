@@ -1,24 +1,129 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
-import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.dto.UserAuthProjection;
 import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
 import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import jakarta.transaction.Transactional;
+
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final RoleCatalog roleCatalog;
+
+    // Snapshots inmutables por username (en minúsculas), acotados por tamaño y TTL
+    private final Cache<String, UserPrincipal> principals;
+
+    // Query a la DB por camino: login (con hash) o miss de la cache de principals
+    private final Timer loginLookup;
+    private final Timer principalLookup;
 
+    public UserDetailsServiceImpl(
+            UserRepository userRepository,
+            RoleCatalog roleCatalog,
+            MeterRegistry meterRegistry,
+            @Value("${app.auth.principal-cache.max-size:10000}") long maxSize,
+            @Value("${app.auth.principal-cache.ttl:30s}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.roleCatalog = roleCatalog;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // hits, misses y evictions en /actuator/prometheus (cache="auth.principal")
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "auth.principal");
+        this.loginLookup = lookupTimer(meterRegistry, "login");
+        this.principalLookup = lookupTimer(meterRegistry, "principal");
+    }
+
+    /**
+     * Login (DaoAuthenticationProvider): es el único camino que necesita el hash del password,
+     * así que no pasa por la cache. Deja en la cache el snapshot sin password.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username.toLowerCase())
+        // Misma normalización que la clave de la cache (y que el lookup original)
+        String key = username.toLowerCase();
+        UserAuthProjection user = loginLookup.record(() -> userRepository.findAuthByUsername(key))
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
-        return   new UserPrincipal(user); // Tu clase User debe implementar UserDetails
+        principals.put(key, toPrincipal(user, null));
+        return toPrincipal(user, user.password());
+    }
+
+    /**
+     * Principal para requests con JWT y refresh: sin password, desde la cache.
+     */
+    public UserPrincipal loadPrincipal(String username) throws UsernameNotFoundException {
+        // Carga única por clave: una ráfaga de requests del mismo usuario hace una sola query
+        UserPrincipal principal = principals.get(username.toLowerCase(), this::load);
+        if (principal == null) {
+            throw new UsernameNotFoundException("Usuario no encontrado: " + username);
+        }
+        return principal;
+    }
+
+    /**
+     * Rehash transparente: DaoAuthenticationProvider lo llama tras un login correcto cuando
+     * el hash guardado usa un costo o algoritmo viejo. El password no cambia, así que no se
+     * tocan passwordChangedAt ni credentialVersion y los tokens emitidos siguen siendo válidos.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        return userRepository.findByUsername(user.getUsername())
+                .map(entity -> {
+                    entity.setPassword(newPassword);
+                    userRepository.save(entity);
+                    evict(entity.getUsername());
+                    return (UserDetails) new UserPrincipal(entity.getId(), entity.getUsername(), newPassword,
+                            entity.isEnabled(), entity.getCredentialVersion(), entity.getPasswordChangedAt(),
+                            roleCatalog.authorities(entity.getRoleMask()));
+                })
+                .orElse(user);
+    }
+
+    /**
+     * Descarta el snapshot cacheado. Se llama siempre que cambia el estado de autenticación
+     * del usuario (password, habilitación, roles, alta).
+     */
+    public void evict(String username) {
+        if (username != null) {
+            principals.invalidate(username.toLowerCase());
+        }
+    }
+
+    // null = no existe (Caffeine no cachea nulls, así que no hay cache negativa)
+    private UserPrincipal load(String username) {
+        return principalLookup.record(() -> userRepository.findAuthByUsername(username))
+                .map(user -> toPrincipal(user, null))
+                .orElse(null);
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("auth.user.lookup")
+                .description("Carga del usuario desde la DB")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    private UserPrincipal toPrincipal(UserAuthProjection user, String password) {
+        return new UserPrincipal(user.id(), user.username(), password, user.enabled(),
+                user.credentialVersion(), user.passwordChangedAt(), roleCatalog.authorities(user.roleMask()));
     }
 }
@@ -0,0 +1,174 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fedeherrera.spring_secure_api_starter.dto.AdminCreateUserRequest;
+
+/**
+ * Lee el archivo del import masivo de a una línea, sin cargarlo entero en memoria.
+ * - NDJSON: un AdminCreateUserRequest por línea
+ * - CSV: primera línea con encabezados (username,email,password,firstName,lastName,roles);
+ *   los roles van separados por '|'. Admite campos entre comillas dobles
+ * Una línea que no se puede interpretar se devuelve con su error, sin cortar el import.
+ */
+class UserImportReader implements Iterator<UserImportReader.Line> {
+
+    record Line(long number, AdminCreateUserRequest request, String error) {
+    }
+
+    private final BufferedReader reader;
+    private final Function<String, AdminCreateUserRequest> parser;
+    private long number;
+    private Line next;
+
+    UserImportReader(InputStream input, UserImportService.Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (format == UserImportService.Format.CSV) {
+            String header = readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("El CSV está vacío");
+            }
+            Map<String, Integer> columns = csvColumns(header);
+            this.parser = line -> fromCsv(splitCsv(line), columns);
+        } else {
+            this.parser = line -> fromJson(line, objectMapper);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            String raw = readLine();
+            if (raw == null) {
+                return false;
+            }
+            if (raw.isBlank()) {
+                continue;
+            }
+            try {
+                next = new Line(number, parser.apply(raw), null);
+            } catch (IllegalArgumentException e) {
+                next = new Line(number, null, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Line next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Line line = next;
+        next = null;
+        return line;
+    }
+
+    private String readLine() {
+        try {
+            String line = reader.readLine();
+            if (line != null) {
+                number++;
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static AdminCreateUserRequest fromJson(String line, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.readValue(line, AdminCreateUserRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsv(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("username", "email", "password", "roles")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Falta la columna '" + required + "' en el encabezado del CSV");
+            }
+        }
+        return columns;
+    }
+
+    private static AdminCreateUserRequest fromCsv(List<String> values, Map<String, Integer> columns) {
+        AdminCreateUserRequest request = new AdminCreateUserRequest();
+        request.setUsername(column(values, columns, "username"));
+        request.setEmail(column(values, columns, "email"));
+        request.setPassword(column(values, columns, "password"));
+        request.setFirstName(column(values, columns, "firstname"));
+        request.setLastName(column(values, columns, "lastname"));
+        String roles = column(values, columns, "roles");
+        request.setRoles(roles == null ? null : Arrays.stream(roles.split("\\|"))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        return request;
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 en una sola línea: comillas dobles para campos con comas, "" para una comilla
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar en la línea CSV");
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
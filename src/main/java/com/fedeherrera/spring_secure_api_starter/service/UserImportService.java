@@ -0,0 +1,375 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fedeherrera.spring_secure_api_starter.config.PasswordHashingProperties;
+import com.fedeherrera.spring_secure_api_starter.dto.AdminCreateUserRequest;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportResult;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportResult.Status;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportSummary;
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.RoleMask;
+import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alta masiva de usuarios (onboarding de un cliente) sin pasar por JPA.
+ *
+ * Procesa el archivo en lotes de batchSize filas:
+ * 1. Valida cada fila (mismas reglas que POST /auth) y descarta repetidos dentro del lote
+ * 2. Una query por lote detecta usernames / emails ya registrados
+ * 3. Hashea los passwords en paralelo, con una parte acotada del pool de hashing de la app
+ *    (hashing-threads, por defecto la mitad) para que los logins sigan teniendo lugar.
+ *    Si el pool responde ServiceBusyException, la fila se reintenta con backoff
+ * 4. Inserta users y user_roles con dos batchUpdate en una transacción por lote. Con
+ *    IDENTITY, Hibernate no agrupa inserts; JDBC directo sí (rewriteBatchedStatements en MySQL)
+ * Si otro alta se cruza entre el paso 2 y el 4, el lote se reintenta fila por fila.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (username, email, password, first_name, last_name, enabled, provider, "
+                    + "credential_version, role_mask, created_at, created_by) "
+                    + "VALUES (?, ?, ?, ?, ?, TRUE, 'LOCAL', 0, ?, ?, ?)";
+    private static final String INSERT_USER_ROLE =
+            "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
+    private static final String SELECT_EXISTING =
+            "SELECT username, email FROM users WHERE username IN (:usernames) OR email IN (:emails)";
+    private static final String SELECT_IDS =
+            "SELECT id, username FROM users WHERE username IN (:usernames)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final RoleService roleService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int hashingParallelism;
+    private final int busyRetries;
+    private final Duration busyBackoff;
+
+    public UserImportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            PasswordEncoder passwordEncoder,
+            RoleService roleService,
+            Validator validator,
+            ObjectMapper objectMapper,
+            PasswordHashingProperties hashingProperties,
+            @Value("${app.users.import.batch-size:1000}") int batchSize,
+            @Value("${app.users.import.hashing-threads:0}") int hashingThreads,
+            @Value("${app.users.import.busy-retries:5}") int busyRetries,
+            @Value("${app.users.import.busy-backoff:100ms}") Duration busyBackoff) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.roleService = roleService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        // 0 = la mitad del pool de la app; nunca más que el pool entero
+        int share = hashingThreads > 0 ? hashingThreads : hashingProperties.getThreads() / 2;
+        this.hashingParallelism = Math.max(1, Math.min(share, hashingProperties.getThreads()));
+        this.busyRetries = busyRetries;
+        this.busyBackoff = busyBackoff;
+    }
+
+    /**
+     * Importa el archivo y publica un resultado por fila en {@code sink} a medida que
+     * termina cada lote.
+     */
+    public UserImportSummary importUsers(InputStream input, Format format, String createdBy,
+            Consumer<UserImportResult> sink) {
+        UserImportReader reader;
+        try {
+            reader = new UserImportReader(input, format, objectMapper);
+        } catch (IllegalArgumentException e) {
+            throw new RegistrationException(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+
+        long start = System.nanoTime();
+        long total = 0;
+        long created = 0;
+        Map<String, Long> roleIds = new HashMap<>();
+        // Un solo pool para todo el import: acota cuántos hashes del import ocupan a la vez
+        // el pool de la app (cada tarea se bloquea hasta que su hash termina)
+        try (ExecutorService hashing = Executors.newFixedThreadPool(hashingParallelism)) {
+            List<UserImportReader.Line> chunk = new ArrayList<>(batchSize);
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == batchSize || !reader.hasNext()) {
+                    for (UserImportResult result : importChunk(chunk, roleIds, createdBy, hashing)) {
+                        total++;
+                        if (result.status() == Status.CREATED) {
+                            created++;
+                        }
+                        sink.accept(result);
+                    }
+                    chunk.clear();
+                }
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Import masivo: {} filas, {} usuarios creados en {} ms", total, created, elapsedMillis);
+        return new UserImportSummary(total, created, total - created, elapsedMillis);
+    }
+
+    private List<UserImportResult> importChunk(List<UserImportReader.Line> chunk, Map<String, Long> roleIds,
+            String createdBy, ExecutorService hashing) {
+        Map<Long, UserImportResult> results = new LinkedHashMap<>();
+        List<Candidate> candidates = new ArrayList<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+
+        // 1. Validación y repetidos dentro del archivo
+        for (UserImportReader.Line line : chunk) {
+            results.put(line.number(), null);
+            AdminCreateUserRequest request = line.request();
+            if (request == null) {
+                results.put(line.number(), reject(line.number(), null, Status.INVALID, line.error()));
+                continue;
+            }
+            String problem = validate(request, roleIds);
+            if (problem != null) {
+                results.put(line.number(), reject(line.number(), request.getUsername(), Status.INVALID, problem));
+                continue;
+            }
+            String username = normalize(request.getUsername());
+            String email = normalize(request.getEmail());
+            if (!usernames.add(username)) {
+                results.put(line.number(), reject(line.number(), request.getUsername(), Status.DUPLICATE,
+                        "Username repetido en el archivo"));
+                continue;
+            }
+            if (!emails.add(email)) {
+                results.put(line.number(), reject(line.number(), request.getUsername(), Status.DUPLICATE,
+                        "Email repetido en el archivo"));
+                continue;
+            }
+            candidates.add(new Candidate(line.number(), request));
+        }
+
+        // 2. Ya registrados (una query por lote)
+        if (!candidates.isEmpty()) {
+            Set<String> takenUsernames = new HashSet<>();
+            Set<String> takenEmails = new HashSet<>();
+            namedJdbcTemplate.query(SELECT_EXISTING, new MapSqlParameterSource()
+                            .addValue("usernames", usernames)
+                            .addValue("emails", emails),
+                    rs -> {
+                        takenUsernames.add(normalize(rs.getString("username")));
+                        takenEmails.add(normalize(rs.getString("email")));
+                    });
+            candidates.removeIf(candidate -> {
+                AdminCreateUserRequest request = candidate.request();
+                String message = takenUsernames.contains(normalize(request.getUsername())) ? "Username ya registrado."
+                        : takenEmails.contains(normalize(request.getEmail())) ? "Email ya registrado."
+                        : null;
+                if (message != null) {
+                    results.put(candidate.line(), reject(candidate.line(), request.getUsername(), Status.DUPLICATE, message));
+                }
+                return message != null;
+            });
+        }
+
+        // 3. Hash en paralelo
+        hashPasswords(candidates, hashing, results);
+        candidates.removeIf(candidate -> candidate.hash == null);
+
+        // 4. Inserts por lote
+        if (!candidates.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(candidates, roleIds, createdBy));
+                candidates.forEach(c -> results.put(c.line(), UserImportResult.created(c.line(), c.request().getUsername())));
+            } catch (DataIntegrityViolationException e) {
+                // Otro alta ganó la carrera con algún username/email del lote: fila por fila
+                for (Candidate candidate : candidates) {
+                    results.put(candidate.line(), insertOne(candidate, roleIds, createdBy));
+                }
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    private String validate(AdminCreateUserRequest request, Map<String, Long> roleIds) {
+        Set<ConstraintViolation<AdminCreateUserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (request.getEmail() == null) {
+            return "email: no debe estar vacío";
+        }
+        for (String role : request.getRoles()) {
+            Long id = roleIds.computeIfAbsent(role,
+                    name -> roleService.findByName(name).map(Role::getId).orElse(-1L));
+            if (id < 0) {
+                return "Rol inexistente: " + role;
+            }
+        }
+        return null;
+    }
+
+    private void hashPasswords(List<Candidate> candidates, ExecutorService hashing, Map<Long, UserImportResult> results) {
+        List<Future<String>> hashes = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            String raw = candidate.request().getPassword();
+            hashes.add(hashing.submit(() -> encode(raw)));
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            try {
+                candidate.hash = hashes.get(i).get();
+            } catch (ExecutionException e) {
+                results.put(candidate.line(), reject(candidate.line(), candidate.request().getUsername(), Status.FAILED,
+                        "No se pudo hashear el password: " + e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrumpido", e);
+            }
+        }
+    }
+
+    /**
+     * Con el pool de la app saturado (logins en ráfaga) espera y reintenta en vez de
+     * descartar la fila: el import no tiene apuro, el login sí.
+     */
+    private String encode(String raw) throws InterruptedException {
+        Duration delay = busyBackoff;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return passwordEncoder.encode(raw);
+            } catch (ServiceBusyException e) {
+                if (attempt >= busyRetries) {
+                    throw e;
+                }
+                Thread.sleep(delay.toMillis());
+                delay = delay.multipliedBy(2);
+            }
+        }
+    }
+
+    private void insert(List<Candidate> candidates, Map<String, Long> roleIds, String createdBy) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_USER, candidates, candidates.size(), (ps, candidate) -> {
+            AdminCreateUserRequest request = candidate.request();
+            ps.setString(1, request.getUsername());
+            ps.setString(2, request.getEmail());
+            ps.setString(3, candidate.hash);
+            ps.setString(4, request.getFirstName());
+            ps.setString(5, request.getLastName());
+            ps.setLong(6, request.getRoles().stream()
+                    .mapToLong(role -> RoleMask.bit(roleIds.get(role)))
+                    .reduce(0L, (a, b) -> a | b));
+            ps.setObject(7, now);
+            ps.setString(8, createdBy);
+        });
+
+        // Con batch no hay generated keys confiables: se leen los ids en una sola query
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_IDS,
+                new MapSqlParameterSource("usernames",
+                        candidates.stream().map(c -> c.request().getUsername()).toList()),
+                rs -> {
+                    ids.put(normalize(rs.getString("username")), rs.getLong("id"));
+                });
+
+        List<long[]> userRoles = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            long userId = ids.get(normalize(candidate.request().getUsername()));
+            for (String role : candidate.request().getRoles()) {
+                userRoles.add(new long[] { userId, roleIds.get(role) });
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE, userRoles, userRoles.size(), (ps, pair) -> {
+            ps.setLong(1, pair[0]);
+            ps.setLong(2, pair[1]);
+        });
+    }
+
+    private UserImportResult insertOne(Candidate candidate, Map<String, Long> roleIds, String createdBy) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(List.of(candidate), roleIds, createdBy));
+            return UserImportResult.created(candidate.line(), candidate.request().getUsername());
+        } catch (DataIntegrityViolationException e) {
+            RuntimeException translated = UserServiceImpl.translateDuplicate(e);
+            if (translated instanceof RegistrationException) {
+                return reject(candidate.line(), candidate.request().getUsername(), Status.DUPLICATE, translated.getMessage());
+            }
+            return reject(candidate.line(), candidate.request().getUsername(), Status.FAILED, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private static UserImportResult reject(long line, String username, Status status, String message) {
+        return new UserImportResult(line, username, status, message);
+    }
+
+    // Igual que las colaciones case-insensitive de MySQL para los índices únicos
+    private static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Candidate {
+        private final long line;
+        private final AdminCreateUserRequest request;
+        private String hash;
+
+        Candidate(long line, AdminCreateUserRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+
+        long line() {
+            return line;
+        }
+
+        AdminCreateUserRequest request() {
+            return request;
+        }
+    }
+}
@@ -1,13 +1,33 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
 import com.fedeherrera.spring_secure_api_starter.entity.User;
 
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserService {
 
     User save(User user);
 
+    /**
+     * Alta de un usuario nuevo. Un username o email repetido se informa como
+     * RegistrationException a partir de la violación del índice único.
+     */
+    User register(User user);
+
+    /**
+     * Habilita o deshabilita la cuenta. Si el estado cambia sube la versión de credenciales:
+     * los tokens emitidos antes dejan de valer también en modo stateless.
+     */
+    User setEnabled(User user, boolean enabled);
+
+    /**
+     * Reemplaza los roles del usuario. Si cambian sube la versión de credenciales: el claim
+     * "roles" de los tokens emitidos antes deja de valer también en modo stateless.
+     */
+    User setRoles(User user, Set<Role> roles);
+
     Optional<User> findById(Long id);
 
     Optional<User> findByUsername(String username);
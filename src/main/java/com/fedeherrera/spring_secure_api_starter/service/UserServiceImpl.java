@@ -1,33 +1,98 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
 import com.fedeherrera.spring_secure_api_starter.entity.User;
 import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
 import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
-import com.fedeherrera.spring_secure_api_starter.repository.VerificationTokenRepository;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserServiceImpl implements UserService {
 
+    private static final Pattern DUPLICATE_KEY = Pattern.compile("for key '([^']+)'");
+
     private final UserRepository userRepository;
-    private final VerificationService verificationService;
     private final PasswordEncoder passwordEncoder;
-    private final VerificationTokenRepository verificationTokenRepository;
+    private final CredentialVersionRegistry credentialVersionRegistry;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final PasswordResetWriter passwordResetWriter;
 
     @Override
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Cualquier alta o cambio (enabled, roles) invalida el principal cacheado
+        userDetailsService.evict(saved.getUsername());
+        return saved;
+    }
+
+    @Override
+    public User register(User user) {
+        try {
+            // flush inmediato: la violación de unique aparece acá y no al commit
+            User saved = userRepository.saveAndFlush(user);
+            userDetailsService.evict(saved.getUsername());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicate(e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public User setEnabled(User user, boolean enabled) {
+        if (user.isEnabled() == enabled) {
+            return user;
+        }
+        user.setEnabled(enabled);
+        // El principal stateless no lleva "enabled": la versión nueva invalida los tokens anteriores
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
+
+        User saved = userRepository.save(user);
+        afterCommit(() -> {
+            credentialVersionRegistry.update(saved.getId(), saved.getCredentialVersion());
+            userDetailsService.evict(saved.getUsername());
+            if (!enabled) {
+                refreshTokenService.revokeAll(saved.getId());
+            }
+        });
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public User setRoles(User user, Set<Role> roles) {
+        long previousVersion = user.getCredentialVersion();
+        // User.setRoles sube credentialVersion si el set de roles cambia
+        user.setRoles(roles);
+        if (user.getCredentialVersion() == previousVersion) {
+            return user;
+        }
+
+        User saved = userRepository.save(user);
+        afterCommit(() -> {
+            credentialVersionRegistry.update(saved.getId(), saved.getCredentialVersion());
+            userDetailsService.evict(saved.getUsername());
+        });
+        return saved;
     }
 
     @Override
@@ -56,20 +121,59 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Transactional
-public void resetPassword(String token, String newPassword) {
-    User user = verificationService.validatePasswordResetToken(token)
-            .orElseThrow(() -> new RegistrationException("Token inválido o expirado"));
-
-    user.setPassword(passwordEncoder.encode(newPassword));
+    public void resetPassword(String token, String newPassword) {
+        // BCrypt fuera de la transacción: no retiene una conexión ni consume el token si el pool está saturado
+        String passwordHash = passwordEncoder.encode(newPassword);
+        User user = passwordResetWriter.apply(token, passwordHash);
+
+        afterCommit(() -> {
+            credentialVersionRegistry.update(user.getId(), user.getCredentialVersion());
+            userDetailsService.evict(user.getUsername());
+            refreshTokenService.revokeAll(user.getId()); // cierra las sesiones abiertas en otros dispositivos
+        });
+
+        log.info("Contraseña actualizada para el usuario {}. Tokens previos invalidados.", user.getEmail());
+    }
 
-    user.setPasswordChangedAt(LocalDateTime.now()); // 👈 Aquí invalidamos los tokens anteriores
-    
-    userRepository.save(user);
+    /**
+     * Registro de versiones, cache de principals y sesiones se tocan recién después del commit:
+     * antes, un loadPrincipal concurrente podría volver a cachear la fila vieja, y un rollback
+     * dejaría la memoria adelantada respecto de la DB. Sin transacción corre en el momento.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-    verificationTokenRepository.deleteByToken(token);
-    log.info("Contraseña actualizada para el usuario {}. Tokens previos invalidados.", user.getEmail());
-    
-}
+    // Índices únicos de V1: MySQL los nombra como la columna ("users.username", "users.email")
+    static RuntimeException translateDuplicate(DataIntegrityViolationException e) {
+        String key = violatedKey(e);
+        if (key.contains("email")) {
+            return new RegistrationException("Email ya registrado.");
+        }
+        if (key.contains("username")) {
+            return new RegistrationException("Username ya registrado.");
+        }
+        return e;
+    }
 
+    private static String violatedKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        // Sin nombre de constraint: "Duplicate entry 'x' for key 'users.email'"
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        Matcher matcher = DUPLICATE_KEY.matcher(message);
+        return (matcher.find() ? matcher.group(1) : message).toLowerCase(Locale.ROOT);
+    }
 }
@@ -1,7 +1,7 @@
 package com.fedeherrera.spring_secure_api_starter.service;
 
 import com.fedeherrera.spring_secure_api_starter.entity.User;
-import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken;
+import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken.TokenType;
 
     import java.util.Optional;
 
@@ -9,21 +9,16 @@ public interface VerificationService {
 
     /**
      * Genera un token de verificación para un usuario.
+     * Devuelve el token en claro (para el link); en la base solo queda su hash.
      */
-    VerificationToken createToken(User user);
+    String createToken(User user);
 
     /**
-     * Valida un token y devuelve el usuario si es válido y no expiró.
+     * Consume un token vigente del tipo indicado y devuelve el id de su usuario.
+     * Si dos requests usan el mismo token a la vez, solo uno lo obtiene.
      */
-    Optional<User> validateToken(String token);
+    Optional<Long> consumeToken(String token, TokenType type);
 
-    /**
-     * Elimina un token de la base de datos.
-     */
-    void deleteToken(String token);
-
-    Optional<User> validatePasswordResetToken(String token);
-    
     void createPasswordResetToken(User user);
 
 }
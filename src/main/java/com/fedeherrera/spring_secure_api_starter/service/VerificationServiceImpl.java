@@ -4,6 +4,7 @@ import com.fedeherrera.spring_secure_api_starter.entity.User;
 import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken;
 import com.fedeherrera.spring_secure_api_starter.entity.VerificationToken.TokenType;
 import com.fedeherrera.spring_secure_api_starter.repository.VerificationTokenRepository;
+import com.fedeherrera.spring_secure_api_starter.security.token.OpaqueTokens;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +13,6 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -23,40 +23,37 @@ public class VerificationServiceImpl implements VerificationService {
     
     @Override
     @Transactional
-    public VerificationToken createToken(User user) {
-        String tokenStr = UUID.randomUUID().toString();
+    public String createToken(User user) {
+        String tokenStr = OpaqueTokens.generate();
 
         VerificationToken token = VerificationToken.builder()
-                .token(tokenStr)
+                .tokenHash(OpaqueTokens.sha256(tokenStr))
                 .user(user)
                 .type(TokenType.VERIFICATION)
                 .expiresAt(LocalDateTime.now().plusHours(24)) // expira en 24h
                 .build();
 
-        return tokenRepository.save(token);
-    }
-
-    @Override
-    public Optional<User> validateToken(String token) {
-        return tokenRepository.findByToken(token)
-                .filter(t -> t.getExpiresAt().isAfter(LocalDateTime.now()))
-                .map(VerificationToken::getUser)
-                .filter(u -> u != null); // ⚡ asegurarse de no devolver null
+        tokenRepository.save(token);
+        return tokenStr;
     }
 
     @Override
     @Transactional
-    public void deleteToken(String token) {
-        tokenRepository.deleteByToken(token);
+    public Optional<Long> consumeToken(String token, TokenType type) {
+        byte[] hash = OpaqueTokens.sha256(token);
+        LocalDateTime now = LocalDateTime.now();
+        // Lookup por índice único + DELETE condicional: gana solo quien borra la fila
+        return tokenRepository.findValidUserId(hash, type, now)
+                .filter(userId -> tokenRepository.deleteValid(hash, type, now) == 1);
     }
 
     @Override
     @Transactional
 public void createPasswordResetToken(User user) {
-    String tokenStr = UUID.randomUUID().toString();
+    String tokenStr = OpaqueTokens.generate();
 
     VerificationToken token = VerificationToken.builder()
-            .token(tokenStr)
+            .tokenHash(OpaqueTokens.sha256(tokenStr))
             .user(user)
             .type(VerificationToken.TokenType.PASSWORD_RESET)
             .expiresAt(LocalDateTime.now().plusHours(1))
@@ -69,13 +66,6 @@ public void createPasswordResetToken(User user) {
     emailService.sendPasswordResetEmail(user.getEmail(), tokenStr);
 }
 
-public Optional<User> validatePasswordResetToken(String token) {
-    return tokenRepository.findByToken(token)
-            .filter(t -> t.getType() == VerificationToken.TokenType.PASSWORD_RESET)
-            .filter(t -> t.getExpiresAt().isAfter(LocalDateTime.now()))
-            .map(VerificationToken::getUser);
-}
-
 
 
  
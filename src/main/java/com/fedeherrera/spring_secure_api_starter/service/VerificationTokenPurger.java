@@ -0,0 +1,88 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fedeherrera.spring_secure_api_starter.repository.VerificationTokenRepository;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Borra periódicamente los tokens de verificación y de reset vencidos.
+ * - Lotes de batchSize filas con un DELETE ... LIMIT (índice sobre expires_at),
+ *   cada uno en su propia transacción para no retener locks ni crecer el undo log
+ * - Un lock en scheduler_lock hace que corra en una sola réplica
+ * - max-duration corta la pasada; lo que quede se borra en la siguiente
+ */
+@Slf4j
+@Component
+public class VerificationTokenPurger {
+
+    static final String LOCK_NAME = "verification-token-purge";
+
+    private final VerificationTokenRepository tokenRepository;
+    private final JdbcLeaseLock leaseLock;
+    private final int batchSize;
+    private final Duration maxDuration;
+
+    private final Counter purged;
+    private final Timer batchTimer;
+
+    public VerificationTokenPurger(
+            VerificationTokenRepository tokenRepository,
+            JdbcLeaseLock leaseLock,
+            MeterRegistry meterRegistry,
+            @Value("${app.verification-tokens.purge.batch-size:1000}") int batchSize,
+            @Value("${app.verification-tokens.purge.max-duration:2m}") Duration maxDuration) {
+        this.tokenRepository = tokenRepository;
+        this.leaseLock = leaseLock;
+        this.batchSize = batchSize;
+        this.maxDuration = maxDuration;
+        this.purged = Counter.builder("verification.tokens.purged")
+                .description("Tokens vencidos eliminados")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("verification.tokens.purge.batch")
+                .description("Duración de cada DELETE por lotes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.verification-tokens.purge.cron:0 */15 * * * *}")
+    public void purgeExpired() {
+        // El lease cubre la pasada completa con margen
+        if (!leaseLock.tryAcquire(LOCK_NAME, maxDuration.multipliedBy(2))) {
+            return;
+        }
+        try {
+            int total = purge(LocalDateTime.now());
+            if (total > 0) {
+                log.info("Purga de tokens: {} tokens vencidos eliminados", total);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error purgando tokens vencidos: {}", e.getMessage(), e);
+        } finally {
+            leaseLock.release(LOCK_NAME);
+        }
+    }
+
+    int purge(LocalDateTime now) {
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        int total = 0;
+        int deleted;
+        do {
+            long start = System.nanoTime();
+            deleted = tokenRepository.deleteExpiredBatch(now, batchSize);
+            batchTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            purged.increment(deleted);
+            total += deleted;
+        } while (deleted == batchSize && System.nanoTime() < deadline);
+        return total;
+    }
+}
@@ -0,0 +1 @@
+CREATE INDEX idx_verification_tokens_expires_at ON verification_tokens (expires_at);
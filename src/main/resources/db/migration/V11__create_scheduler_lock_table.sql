@@ -0,0 +1,5 @@
+CREATE TABLE scheduler_lock (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    locked_until DATETIME(3) NOT NULL,
+    locked_by VARCHAR(255) NOT NULL
+);
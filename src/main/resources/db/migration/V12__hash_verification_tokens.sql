@@ -0,0 +1,10 @@
+-- Los tokens dejan de guardarse en texto plano: se guarda su SHA-256 (32 bytes fijos).
+-- Los links ya enviados siguen funcionando porque se hashea el mismo string.
+ALTER TABLE verification_tokens ADD COLUMN token_hash BINARY(32) NULL;
+
+UPDATE verification_tokens SET token_hash = UNHEX(SHA2(token, 256));
+
+ALTER TABLE verification_tokens MODIFY token_hash BINARY(32) NOT NULL;
+ALTER TABLE verification_tokens ADD CONSTRAINT uk_verification_tokens_token_hash UNIQUE (token_hash);
+
+ALTER TABLE verification_tokens DROP COLUMN token;
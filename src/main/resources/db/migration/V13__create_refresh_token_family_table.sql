@@ -0,0 +1,18 @@
+-- Una fila por sesión (familia de refresh tokens). Solo el token de la generación actual
+-- es válido; presentar uno anterior revoca la familia entera.
+CREATE TABLE refresh_token_family (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    generation BIGINT NOT NULL,
+    created_at DATETIME(3) NOT NULL,
+    rotated_at DATETIME(3) NULL,
+    expires_at DATETIME(3) NOT NULL,
+    revoked_at DATETIME(3) NULL,
+    CONSTRAINT fk_refresh_token_family_user
+        FOREIGN KEY (user_id) REFERENCES users(id)
+        ON DELETE CASCADE
+);
+
+CREATE INDEX idx_refresh_token_family_user ON refresh_token_family (user_id);
+CREATE INDEX idx_refresh_token_family_expires_at ON refresh_token_family (expires_at);
+CREATE INDEX idx_refresh_token_family_revoked_at ON refresh_token_family (revoked_at);
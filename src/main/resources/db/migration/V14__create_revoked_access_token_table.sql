@@ -0,0 +1,11 @@
+-- Access tokens revocados antes de su vencimiento (logout). Es la fuente exacta detrás
+-- del Bloom filter en memoria; las filas se purgan cuando el token vence.
+CREATE TABLE revoked_access_token (
+    jti CHAR(36) NOT NULL PRIMARY KEY,
+    user_id BIGINT NULL,
+    expires_at DATETIME(3) NOT NULL,
+    revoked_at DATETIME(3) NOT NULL
+);
+
+CREATE INDEX idx_revoked_access_token_expires_at ON revoked_access_token (expires_at);
+CREATE INDEX idx_revoked_access_token_revoked_at ON revoked_access_token (revoked_at);
@@ -0,0 +1,11 @@
+-- Roles del usuario desnormalizados en un bitmask (bit = role_id - 1, hasta 63 roles).
+-- La autenticación lee solo esta fila; user_roles sigue siendo la relación de JPA.
+ALTER TABLE users
+ADD COLUMN role_mask BIGINT NOT NULL DEFAULT 0;
+
+-- OR de enteros: exacto (sin pasar por DOUBLE) y una fila repetida no suma dos veces
+UPDATE users SET role_mask = (
+    SELECT COALESCE(BIT_OR(1 << (ur.role_id - 1)), 0)
+    FROM user_roles ur
+    WHERE ur.user_id = users.id
+);
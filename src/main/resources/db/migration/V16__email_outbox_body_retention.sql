@@ -0,0 +1,6 @@
+-- El cuerpo lleva links con tokens en claro: se borra al enviarse y la fila se purga después.
+ALTER TABLE email_outbox MODIFY body TEXT NULL;
+
+UPDATE email_outbox SET body = NULL WHERE status = 'SENT';
+
+CREATE INDEX idx_email_outbox_created ON email_outbox (created_at);
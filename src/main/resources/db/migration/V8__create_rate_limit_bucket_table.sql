@@ -0,0 +1,10 @@
+CREATE TABLE rate_limit_bucket (
+    policy VARCHAR(16) NOT NULL,
+    client_key BIGINT NOT NULL,
+    tokens INT NOT NULL,
+    window_start BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (policy, client_key)
+);
+
+CREATE INDEX idx_rate_limit_bucket_window ON rate_limit_bucket (window_start);
@@ -0,0 +1,197 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.MDC;
+import org.springframework.boot.logging.logback.StructuredLogEncoder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+
+/**
+ * Misma cadena de appenders que el perfil prod de logback-spring.xml, armada sobre un
+ * LoggerContext propio para no tocar el logging de los demás tests.
+ */
+class AsyncJsonLoggingTest {
+
+    private static final String TEXT_PATTERN =
+            "%d{yyyy-MM-dd HH:mm:ss.SSS} %-5level --- [%thread] %logger{36} : [%X{traceId}] %msg%n";
+
+    @TempDir
+    Path dir;
+
+    private final LoggerContext context = new LoggerContext();
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        context.stop();
+    }
+
+    @Test
+    void jsonLinesCarryTheTraceIdAsAField() throws Exception {
+        Path file = dir.resolve("app.log");
+        Logger logger = logger(async(fileAppender(file, jsonEncoder(), false), 8192));
+
+        MDC.put("traceId", "abc123");
+        logger.info("Login exitoso para {}", "fede");
+        context.stop(); // drena la cola
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0))
+                .startsWith("{")
+                .contains("\"traceId\":\"abc123\"")
+                .contains("\"level\":\"INFO\"")
+                .contains("\"message\":\"Login exitoso para fede\"");
+    }
+
+    @Test
+    void aFullQueueDropsEventsInsteadOfBlockingTheCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Appender<ILoggingEvent> stuck = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        stuck.setContext(context);
+        stuck.start();
+        Logger logger = logger(async(stuck, 16));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            logger.info("evento {}", i);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        // El appender de destino está trabado: con never-block el caller sigue igual
+        assertThat(elapsedMillis).isLessThan(5_000);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void asyncJsonVersusSyncTextThroughput(TestReporter reporter) throws Exception {
+        int threads = 16;
+        int perThread = 50_000;
+
+        Logger sync = logger(fileAppender(dir.resolve("sync.log"), textEncoder(), true));
+        double syncRate = throughput(sync, threads, perThread);
+        context.reset();
+
+        Logger async = logger(async(fileAppender(dir.resolve("async.log"), jsonEncoder(), false), 8192));
+        double asyncRate = throughput(async, threads, perThread);
+
+        reporter.publishEntry("logging", String.format("texto síncrono %.0f eventos/s, JSON async %.0f eventos/s (x%.1f)",
+                syncRate, asyncRate, asyncRate / syncRate));
+        assertThat(asyncRate).isGreaterThan(syncRate);
+    }
+
+    private double throughput(Logger logger, int threads, int perThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                done.add(pool.submit(() -> {
+                    MDC.put("traceId", Integer.toHexString(worker));
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        logger.info("Token rechazado para el usuario {}: versión de credenciales obsoleta.", i);
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            return (double) threads * perThread / elapsed * 1_000_000_000L;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Logger logger(Appender<ILoggingEvent> appender) {
+        Logger logger = context.getLogger("bench");
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private Appender<ILoggingEvent> async(Appender<ILoggingEvent> delegate, int queueSize) {
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(queueSize);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(true);
+        async.setIncludeCallerData(false);
+        async.addAppender(delegate);
+        async.start();
+        return async;
+    }
+
+    private Appender<ILoggingEvent> fileAppender(Path file, Encoder<ILoggingEvent> encoder, boolean immediateFlush) {
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.setImmediateFlush(immediateFlush);
+        appender.start();
+        return appender;
+    }
+
+    private Encoder<ILoggingEvent> textEncoder() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(TEXT_PATTERN);
+        encoder.start();
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> jsonEncoder() {
+        // StructuredLogEncoder toma el Environment del contexto (Spring Boot lo registra al iniciar)
+        context.putObject(Environment.class.getName(), new StandardEnvironment());
+        StructuredLogEncoder encoder = new StructuredLogEncoder();
+        encoder.setContext(context);
+        encoder.setFormat("logstash");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+        return encoder;
+    }
+}
@@ -0,0 +1,57 @@
+package com.fedeherrera.spring_secure_api_starter.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class RequestContextTaskDecoratorTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void propagatesTraceIdAndAuthenticationToAVirtualThread() throws Exception {
+        Authentication authentication = new TestingAuthenticationToken("fede", null, "ROLE_USER");
+        MDC.put("traceId", "abc123");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        AtomicReference<String> traceId = new AtomicReference<>();
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        Runnable task = new RequestContextTaskDecorator().decorate(() -> {
+            traceId.set(MDC.get("traceId"));
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(task).get();
+        }
+
+        assertThat(traceId.get()).isEqualTo("abc123");
+        assertThat(seen.get()).isSameAs(authentication);
+    }
+
+    @Test
+    void restoresTheWorkerContextAfterTheTask() {
+        MDC.put("traceId", "request");
+        Runnable task = new RequestContextTaskDecorator().decorate(() -> { });
+
+        // Simula un thread de pool reutilizado que ya tenía otro contexto
+        MDC.put("traceId", "worker");
+        task.run();
+
+        assertThat(MDC.get("traceId")).isEqualTo("worker");
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+}
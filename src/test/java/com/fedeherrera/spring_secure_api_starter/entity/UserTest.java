@@ -0,0 +1,65 @@
+package com.fedeherrera.spring_secure_api_starter.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class UserTest {
+
+    @Test
+    void roleMutatorsKeepTheMaskInSync() {
+        User user = User.builder().username("fede").build();
+        user.setRoles(Set.of(role(1L, "ROLE_USER")));
+
+        user.addRole(role(2L, "ROLE_ADMIN"));
+        assertThat(user.getRoleMask()).isEqualTo(0b11L);
+
+        // Otra instancia del mismo rol (Role no define equals)
+        user.addRole(role(2L, "ROLE_ADMIN"));
+        assertThat(user.getRoles()).hasSize(2);
+
+        user.removeRole(role(1L, "ROLE_USER"));
+        assertThat(user.getRoleMask()).isEqualTo(0b10L);
+        assertThat(user.getRoles()).extracting(Role::getName).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void roleChangesOnAnExistingUserBumpTheCredentialVersion() {
+        User user = User.builder().username("fede").build();
+        user.setRoles(Set.of(role(1L, "ROLE_USER")));
+        // Alta: todavía no hay tokens emitidos
+        assertThat(user.getCredentialVersion()).isZero();
+
+        user.setId(1L);
+        user.addRole(role(2L, "ROLE_ADMIN"));
+        assertThat(user.getCredentialVersion()).isEqualTo(1L);
+
+        // Mismo set de roles: los tokens siguen valiendo
+        user.addRole(role(2L, "ROLE_ADMIN"));
+        user.setRoles(Set.of(role(1L, "ROLE_USER"), role(2L, "ROLE_ADMIN")));
+        assertThat(user.getCredentialVersion()).isEqualTo(1L);
+
+        user.removeRole(role(2L, "ROLE_ADMIN"));
+        assertThat(user.getCredentialVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void rolesCannotBeChangedBehindTheMask() {
+        User user = User.builder().username("fede").build();
+        user.setRoles(Set.of(role(1L, "ROLE_USER")));
+
+        assertThatThrownBy(() -> user.getRoles().add(role(2L, "ROLE_ADMIN")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(user.getRoleMask()).isEqualTo(0b1L);
+    }
+
+    private static Role role(Long id, String name) {
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        return role;
+    }
+}
@@ -0,0 +1,44 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class ClientAddressKeyTest {
+
+    @Test
+    void packsIpv4AddressesAndIgnoresPorts() {
+        assertThat(ClientAddressKey.parse("1.2.3.4")).isEqualTo(0xFFFF_FFFF_0102_0304L);
+        assertThat(ClientAddressKey.parse(" 1.2.3.4:8080 ")).isEqualTo(ClientAddressKey.parse("1.2.3.4"));
+        assertThat(ClientAddressKey.parse("::ffff:1.2.3.4")).isEqualTo(ClientAddressKey.parse("1.2.3.4"));
+    }
+
+    @Test
+    void groupsIpv6ClientsByTheirSlash64() {
+        long prefix = 0x2001_0db8_0001_0002L;
+
+        assertThat(ClientAddressKey.parse("2001:db8:1:2:3:4:5:6")).isEqualTo(prefix);
+        assertThat(ClientAddressKey.parse("2001:db8:1:2::1")).isEqualTo(prefix);
+        assertThat(ClientAddressKey.parse("[2001:db8:1:2::9]")).isEqualTo(prefix);
+        assertThat(ClientAddressKey.parse("2001:db8:1:3::1")).isNotEqualTo(prefix);
+        assertThat(ClientAddressKey.parse("fe80::1%eth0")).isEqualTo(0xFE80_0000_0000_0000L);
+    }
+
+    @Test
+    void invalidInputFallsIntoTheUnknownKey() {
+        assertThat(ClientAddressKey.parse("256.1.1.1")).isEqualTo(ClientAddressKey.UNKNOWN);
+        assertThat(ClientAddressKey.parse("1::2::3")).isEqualTo(ClientAddressKey.UNKNOWN);
+        assertThat(ClientAddressKey.parse("garbage")).isEqualTo(ClientAddressKey.UNKNOWN);
+        assertThat(ClientAddressKey.parse("")).isEqualTo(ClientAddressKey.UNKNOWN);
+    }
+
+    @Test
+    void usesTheFirstForwardedAddress() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("X-Forwarded-For", "198.51.100.4, 10.0.0.1");
+
+        assertThat(ClientAddressKey.of(request)).isEqualTo(ClientAddressKey.parse("198.51.100.4"));
+    }
+}
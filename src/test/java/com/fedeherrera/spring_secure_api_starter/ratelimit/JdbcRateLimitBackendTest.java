@@ -0,0 +1,156 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class JdbcRateLimitBackendTest {
+
+    private static final long CLIENT = ClientAddressKey.parse("198.51.100.20");
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V8__create_rate_limit_bucket_table.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void loginLimitIsSharedAcrossReplicas() {
+        JdbcRateLimitBackend replicaA = replica();
+        JdbcRateLimitBackend replicaB = replica();
+
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            JdbcRateLimitBackend replica = i % 2 == 0 ? replicaA : replicaB;
+            if (replica.tryConsume(CLIENT, RateLimitPolicy.LOGIN)) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(RateLimitPolicy.LOGIN.getCapacity());
+    }
+
+    @Test
+    void prefetchAvoidsARoundTripPerRequest() {
+        JdbcRateLimitBackend replica = replica();
+
+        for (int i = 0; i < RateLimitPolicy.API.getCapacity(); i++) {
+            assertThat(replica.tryConsume(CLIENT, RateLimitPolicy.API)).isTrue();
+        }
+        assertThat(replica.tryConsume(CLIENT, RateLimitPolicy.API)).isFalse();
+        assertThat(replica.tryConsume(CLIENT, RateLimitPolicy.API)).isFalse();
+
+        // 50 tokens en reservas de 10: un INSERT y cuatro UPDATE; los rechazos no escriben
+        assertThat(version(RateLimitPolicy.API)).isEqualTo(4L);
+    }
+
+    @Test
+    void bucketRefillsWhenTheWindowRollsOver() {
+        JdbcRateLimitBackend replica = replica();
+        for (int i = 0; i < RateLimitPolicy.LOGIN.getCapacity(); i++) {
+            replica.tryConsume(CLIENT, RateLimitPolicy.LOGIN);
+        }
+        assertThat(replica.tryConsume(CLIENT, RateLimitPolicy.LOGIN)).isFalse();
+
+        clock.advance(RateLimitPolicy.LOGIN.getRefillPeriod());
+
+        assertThat(replica.tryConsume(CLIENT, RateLimitPolicy.LOGIN)).isTrue();
+    }
+
+    @Test
+    void concurrentReplicasNeverExceedTheCapacity() throws Exception {
+        List<JdbcRateLimitBackend> replicas = List.of(replica(), replica(), replica());
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                JdbcRateLimitBackend replica = replicas.get(t % replicas.size());
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        if (replica.tryConsume(CLIENT, RateLimitPolicy.LOGIN)) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(allowed.get()).isEqualTo(RateLimitPolicy.LOGIN.getCapacity());
+    }
+
+    private JdbcRateLimitBackend replica() {
+        return new JdbcRateLimitBackend(jdbcTemplate, 1_000, 10, clock);
+    }
+
+    private Long version(RateLimitPolicy policy) {
+        return jdbcTemplate.queryForObject(
+                "SELECT version FROM rate_limit_bucket WHERE policy = ? AND client_key = ?",
+                Long.class, policy.name(), CLIENT);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.fedeherrera.spring_secure_api_starter.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+
+class LongBucketStoreTest {
+
+    private static final Supplier<Bucket> LOGIN_BUCKET = () -> Bucket.builder()
+            .addLimit(Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(1))))
+            .build();
+
+    @Test
+    void sameClientKeepsItsBucket() {
+        LongBucketStore store = new LongBucketStore(1_000, Duration.ofMinutes(2), LOGIN_BUCKET);
+        long client = ClientAddressKey.parse("203.0.113.7");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(store.resolve(client).tryConsume(1)).isTrue();
+        }
+        assertThat(store.resolve(client).tryConsume(1)).isFalse();
+        assertThat(store.resolve(ClientAddressKey.parse("203.0.113.8")).tryConsume(1)).isTrue();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void idleBucketsAreDroppedOnLaterInserts() throws InterruptedException {
+        LongBucketStore store = new LongBucketStore(1_000, Duration.ofMillis(1), LOGIN_BUCKET);
+        for (int i = 0; i < 500; i++) {
+            store.resolve(i);
+        }
+        Thread.sleep(5);
+        for (int i = 0; i < 1_000; i++) {
+            store.resolve(10_000 + i);
+        }
+
+        assertThat(store.idleEvictions()).isPositive();
+        assertThat(store.capacityEvictions()).isLessThan(500);
+    }
+
+    @Test
+    void sizeStaysAtMaxEntriesWhileReplayingDistinctIps() {
+        int maxEntries = 1_000;
+        int distinctIps = 20_000;
+        LongBucketStore store = new LongBucketStore(maxEntries, Duration.ofMinutes(2), LOGIN_BUCKET);
+
+        for (int i = 0; i < distinctIps; i++) {
+            store.resolve(ClientAddressKey.parse("10.0." + (i >>> 8) + "." + (i & 0xFF)));
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(maxEntries);
+        assertThat(store.capacityEvictions()).isGreaterThanOrEqualTo(distinctIps - maxEntries);
+    }
+
+    /** Depende del GC y de la JVM: va con los benchmarks, fuera de la suite por defecto. */
+    @Test
+    @Tag("benchmark")
+    void heapStaysBoundedWhileReplayingMillionsOfDistinctIps(TestReporter reporter) {
+        int maxEntries = 50_000;
+        int distinctIps = 3_000_000;
+        LongBucketStore store = new LongBucketStore(maxEntries, Duration.ofMinutes(2), LOGIN_BUCKET);
+        long before = usedHeapAfterGc();
+
+        StringBuilder ip = new StringBuilder(15);
+        for (int i = 0; i < distinctIps; i++) {
+            ip.setLength(0);
+            ip.append(10).append('.')
+                    .append((i >>> 16) & 0xFF).append('.')
+                    .append((i >>> 8) & 0xFF).append('.')
+                    .append(i & 0xFF);
+            store.resolve(ClientAddressKey.parse(ip));
+        }
+
+        long retained = usedHeapAfterGc() - before;
+        reporter.publishEntry("memory", String.format("%d IPs -> %d entradas, %d KB retenidos",
+                distinctIps, store.size(), retained / 1024));
+
+        assertThat(store.size()).isLessThanOrEqualTo(maxEntries);
+        assertThat(store.capacityEvictions()).isGreaterThanOrEqualTo(distinctIps - maxEntries);
+        // 50k baldes de bucket4j más las tablas: muy lejos de lo que ocuparían 3M entradas
+        assertThat(retained).isLessThan(64L * 1024 * 1024);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,61 @@
+package com.fedeherrera.spring_secure_api_starter.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class JdbcLeaseLockTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V11__create_scheduler_lock_table.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void onlyOneReplicaHoldsTheLockUntilItIsReleased() {
+        JdbcLeaseLock replicaA = new JdbcLeaseLock(jdbcTemplate);
+        JdbcLeaseLock replicaB = new JdbcLeaseLock(jdbcTemplate);
+
+        assertThat(replicaA.tryAcquire("purge", Duration.ofMinutes(5))).isTrue();
+        assertThat(replicaB.tryAcquire("purge", Duration.ofMinutes(5))).isFalse();
+
+        // Solo el dueño puede liberarlo
+        replicaB.release("purge");
+        assertThat(replicaB.tryAcquire("purge", Duration.ofMinutes(5))).isFalse();
+
+        replicaA.release("purge");
+        assertThat(replicaB.tryAcquire("purge", Duration.ofMinutes(5))).isTrue();
+    }
+
+    @Test
+    void anExpiredLeaseCanBeTakenOver() throws InterruptedException {
+        JdbcLeaseLock crashed = new JdbcLeaseLock(jdbcTemplate);
+        JdbcLeaseLock survivor = new JdbcLeaseLock(jdbcTemplate);
+
+        assertThat(crashed.tryAcquire("purge", Duration.ofMillis(20))).isTrue();
+        Thread.sleep(50);
+
+        assertThat(survivor.tryAcquire("purge", Duration.ofMinutes(5))).isTrue();
+    }
+}
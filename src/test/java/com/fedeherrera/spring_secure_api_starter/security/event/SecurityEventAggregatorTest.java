@@ -0,0 +1,83 @@
+package com.fedeherrera.spring_secure_api_starter.security.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SecurityEventAggregatorTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SecurityEventAggregator.class);
+    private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+    private SimpleMeterRegistry meterRegistry;
+    private SecurityEventAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        logs.start();
+        logger.addAppender(logs);
+        meterRegistry = new SimpleMeterRegistry();
+        aggregator = new SecurityEventAggregator(meterRegistry, Duration.ofMinutes(1), 3, 100, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(logs);
+    }
+
+    @Test
+    void onlyTheFirstEventsOfAWindowAreLoggedButAllAreCounted() {
+        for (int i = 0; i < 1_000; i++) {
+            aggregator.record(SecurityEventType.RATE_LIMITED, "LOGIN", "10.0.0." + (i % 4), "/auth/login", null);
+        }
+
+        assertThat(logs.list).hasSize(3);
+        assertThat(meterRegistry.counter("security.events", "type", "rate_limited", "reason", "LOGIN").count())
+                .isEqualTo(1_000);
+        assertThat(meterRegistry.counter("security.events.suppressed", "type", "rate_limited").count())
+                .isEqualTo(997);
+
+        aggregator.flush();
+
+        // Una línea de resumen con el total y las 2 claves más frecuentes
+        assertThat(logs.list).hasSize(4);
+        String summary = logs.list.get(3).getFormattedMessage();
+        assertThat(summary).contains("RATE_LIMITED x1000 en 4 claves, 997 sin loguear");
+        assertThat(summary).containsPattern("top: [^,]*=250, [^,]*=250$");
+
+        // Ventana nueva: vuelven a loguearse los primeros
+        aggregator.record(SecurityEventType.RATE_LIMITED, "LOGIN", "10.0.0.1", "/auth/login", null);
+        assertThat(logs.list).hasSize(5);
+    }
+
+    @Test
+    void distinctKeysAreCappedPerWindow() {
+        for (int i = 0; i < 500; i++) {
+            aggregator.record(SecurityEventType.INVALID_TOKEN, "INVALID_SIGNATURE", "10.0." + i / 256 + "." + i % 256,
+                    "/api/" + i, null);
+        }
+
+        aggregator.flush();
+
+        // 100 claves propias + una clave "*" que acumula el resto
+        String summary = logs.list.get(logs.list.size() - 1).getFormattedMessage();
+        assertThat(summary).contains("INVALID_TOKEN x500 en 101 claves");
+        assertThat(summary).contains("* * INVALID_SIGNATURE=400");
+    }
+
+    @Test
+    void emptyWindowsDoNotLog() {
+        aggregator.flush();
+
+        assertThat(logs.list).isEmpty();
+    }
+}
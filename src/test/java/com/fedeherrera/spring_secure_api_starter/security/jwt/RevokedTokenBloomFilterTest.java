@@ -0,0 +1,99 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class RevokedTokenBloomFilterTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+
+    @Test
+    void revokedTokensAreAlwaysReported() {
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(Duration.ofMinutes(1), 1_000, 0.001, clock);
+        long exp = clock.millis() + Duration.ofMinutes(15).toMillis();
+
+        for (int i = 0; i < 1_000; i++) {
+            String jti = UUID.randomUUID().toString();
+            filter.put(jti, exp);
+            assertThat(filter.mightContain(jti, exp)).isTrue();
+        }
+        assertThat(filter.entries()).isEqualTo(1_000);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(Duration.ofMinutes(1), 10_000, 0.01, clock);
+        long exp = clock.millis() + Duration.ofMinutes(15).toMillis();
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString(), exp);
+        }
+
+        int positives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString(), exp)) {
+                positives++;
+            }
+        }
+
+        assertThat((double) positives / probes).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    void bucketsAreDroppedOnceTheirTokensExpire() {
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(Duration.ofMinutes(1), 1_000, 0.001, clock);
+        long soon = clock.millis() + Duration.ofMinutes(2).toMillis();
+        long later = clock.millis() + Duration.ofMinutes(15).toMillis();
+        filter.put("a", soon);
+        filter.put("b", later);
+        long bytes = filter.memoryBytes();
+
+        clock.advance(Duration.ofMinutes(3));
+
+        assertThat(filter.rotate()).isEqualTo(1);
+        assertThat(filter.bucketCount()).isEqualTo(1);
+        assertThat(filter.memoryBytes()).isLessThan(bytes);
+        assertThat(filter.mightContain("b", later)).isTrue();
+
+        // Un token ya vencido no se agrega: no autentica de todos modos
+        filter.put("c", clock.millis() - 1);
+        assertThat(filter.entries()).isEqualTo(1);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.fedeherrera.spring_secure_api_starter.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken.FailureReason;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerifiedTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = cache(true, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void hitReturnsTheCachedResult() {
+        ValidatedToken result = valid(Duration.ofMinutes(10));
+
+        cache.put(TOKEN, result, 1_000);
+
+        assertThat(cache.get(TOKEN)).isSameAs(result);
+    }
+
+    @Test
+    void entryExpiresAtTheTokenExp() {
+        cache.put(TOKEN, valid(Duration.ofSeconds(2)), 1_000);
+
+        advance(Duration.ofSeconds(1));
+        assertThat(cache.get(TOKEN)).isNotNull();
+
+        advance(Duration.ofSeconds(2));
+        assertThat(cache.get(TOKEN)).isNull();
+    }
+
+    @Test
+    void entryLifetimeIsCappedAtMaxTtl() {
+        cache = cache(true, Duration.ofMinutes(1));
+        cache.put(TOKEN, valid(Duration.ofHours(1)), 1_000);
+
+        advance(Duration.ofSeconds(59));
+        assertThat(cache.get(TOKEN)).isNotNull();
+
+        advance(Duration.ofSeconds(2));
+        assertThat(cache.get(TOKEN)).isNull();
+    }
+
+    @Test
+    void invalidResultsAndTokensWithoutExpirationAreNotAdmitted() {
+        cache.put(TOKEN, ValidatedToken.failed(FailureReason.EXPIRED), 1_000);
+        assertThat(cache.get(TOKEN)).isNull();
+
+        cache.put(TOKEN, ValidatedToken.of(Jwts.claims().setSubject("fede")), 1_000);
+        assertThat(cache.get(TOKEN)).isNull();
+    }
+
+    @Test
+    void sameSignatureWithAnotherPayloadMisses() {
+        cache.put(TOKEN, valid(Duration.ofMinutes(10)), 1_000);
+
+        assertThat(cache.get("header.other-payload.signature")).isNull();
+    }
+
+    @Test
+    void disabledCacheAlwaysMisses() {
+        cache = cache(false, Duration.ofMinutes(15));
+
+        cache.put(TOKEN, valid(Duration.ofMinutes(10)), 1_000);
+
+        assertThat(cache.get(TOKEN)).isNull();
+    }
+
+    @Test
+    void hitAddsTheMeanVerificationTimeToCpuSaved() {
+        cache.put(TOKEN, valid(Duration.ofMinutes(10)), 2_000_000);
+
+        cache.get(TOKEN);
+        cache.get(TOKEN);
+
+        // 2 hits x 2 ms de verificación media
+        assertThat(meterRegistry.get("auth.jwt.cache.cpu.saved").functionCounter().count()).isEqualTo(0.004);
+    }
+
+    private VerifiedTokenCache cache(boolean enabled, Duration maxTtl) {
+        return new VerifiedTokenCache(meterRegistry, enabled, 100, maxTtl, nanos::get);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static ValidatedToken valid(Duration lifetime) {
+        Claims claims = Jwts.claims().setSubject("fede");
+        claims.setExpiration(new Date(System.currentTimeMillis() + lifetime.toMillis()));
+        return ValidatedToken.of(claims);
+    }
+}
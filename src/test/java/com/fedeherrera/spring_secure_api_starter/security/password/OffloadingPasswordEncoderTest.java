@@ -0,0 +1,81 @@
+package com.fedeherrera.spring_secure_api_starter.security.password;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OffloadingPasswordEncoderTest {
+
+    @Test
+    void legacyHashesStillMatchAndAreFlaggedForUpgrade() {
+        PasswordEncoder encoder = PasswordEncoders.delegating(11);
+        String legacy = new BCryptPasswordEncoder(10).encode("secret");
+
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+
+        String current = encoder.encode("secret");
+        assertThat(current).startsWith("{bcrypt}$2a$11$");
+        assertThat(encoder.matches("secret", current)).isTrue();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+
+        // Bajar el costo configurado no fuerza un rehash de los hashes más fuertes
+        assertThat(PasswordEncoders.delegating(10).upgradeEncoding(current)).isFalse();
+    }
+
+    @Test
+    void unusablePasswordNeverMatches() {
+        PasswordEncoder encoder = PasswordEncoders.delegating(10);
+
+        assertThat(encoder.matches("", PasswordEncoders.UNUSABLE_PASSWORD)).isFalse();
+        assertThat(encoder.matches("{unusable}", PasswordEncoders.UNUSABLE_PASSWORD)).isFalse();
+    }
+
+    @Test
+    void rejectsFastWhenThePoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slow = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        try (OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(slow, 1, 1, Duration.ofSeconds(5), registry)) {
+            Thread busy = new Thread(() -> encoder.encode("a"));
+            Thread queued = new Thread(() -> encoder.encode("b"));
+            busy.start();
+            started.await(5, TimeUnit.SECONDS);
+            queued.start();
+            while (registry.get("auth.password.queue.depth").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> encoder.encode("c")).isInstanceOf(ServiceBusyException.class);
+            assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            busy.join();
+            queued.join();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.fedeherrera.spring_secure_api_starter.security.refresh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.fedeherrera.spring_secure_api_starter.security.refresh.RefreshTokenFamilyStore.Rotation;
+
+class RefreshTokenFamilyStoreTest {
+
+    private static final Duration TTL = Duration.ofDays(7);
+    private static final long USER_ID = 1L;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private RefreshTokenFamilyStore store;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V1__init_schema.sql")
+                .addScript("classpath:db/migration/V13__create_refresh_token_family_table.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, enabled, created_at) "
+                + "VALUES (?, 'fede', 'fede@test.com', 'x', TRUE, ?)", USER_ID, LocalDateTime.now());
+        store = new RefreshTokenFamilyStore(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void onlyTheCurrentGenerationRotates() {
+        long family = store.create(USER_ID, TTL);
+
+        assertThat(store.rotate(family, 0, TTL, Duration.ZERO)).isEqualTo(Rotation.ROTATED);
+        assertThat(store.rotate(family, 1, TTL, Duration.ZERO)).isEqualTo(Rotation.ROTATED);
+        assertThat(store.rotate(family, 5, TTL, Duration.ZERO)).isEqualTo(Rotation.UNKNOWN);
+        assertThat(store.rotate(family + 1, 0, TTL, Duration.ZERO)).isEqualTo(Rotation.UNKNOWN);
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        long family = store.create(USER_ID, TTL);
+        store.rotate(family, 0, TTL, Duration.ZERO);
+
+        // El token de la generación 0 vuelve a aparecer (lo tenía otro)
+        assertThat(store.rotate(family, 0, TTL, Duration.ZERO)).isEqualTo(Rotation.REUSED);
+
+        // Ni siquiera el token vigente sirve ya
+        assertThat(store.rotate(family, 1, TTL, Duration.ZERO)).isEqualTo(Rotation.REVOKED);
+    }
+
+    @Test
+    void aRetryWithinTheGraceWindowIsRejectedWithoutRevoking() {
+        long family = store.create(USER_ID, TTL);
+        store.rotate(family, 0, TTL, Duration.ofMinutes(1));
+
+        assertThat(store.rotate(family, 0, TTL, Duration.ofMinutes(1))).isEqualTo(Rotation.CONCURRENT);
+        assertThat(store.rotate(family, 1, TTL, Duration.ofMinutes(1))).isEqualTo(Rotation.ROTATED);
+    }
+
+    @Test
+    void revokeAllForUserClosesEveryOpenSession() {
+        long first = store.create(USER_ID, TTL);
+        long second = store.create(USER_ID, TTL);
+        store.revoke(second);
+
+        assertThat(store.revokeAllForUser(USER_ID)).containsExactly(first);
+        assertThat(store.rotate(first, 0, TTL, Duration.ZERO)).isEqualTo(Rotation.REVOKED);
+
+        LocalDateTime[] seen = new LocalDateTime[1];
+        int[] count = new int[1];
+        store.forEachRevokedSince(LocalDateTime.now().minusMinutes(1), (id, revokedAt) -> {
+            seen[0] = revokedAt;
+            count[0]++;
+        });
+        assertThat(count[0]).isEqualTo(2);
+        assertThat(seen[0]).isNotNull();
+    }
+}
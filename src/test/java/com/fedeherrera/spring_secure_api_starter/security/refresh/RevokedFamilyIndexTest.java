@@ -0,0 +1,95 @@
+package com.fedeherrera.spring_secure_api_starter.security.refresh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+class RevokedFamilyIndexTest {
+
+    private static final Duration RETENTION = Duration.ofDays(7);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+
+    @Test
+    void revokedFamiliesAreForgottenOnceTheirTokensHaveExpired() {
+        RevokedFamilyIndex index = new RevokedFamilyIndex(RETENTION, 24, 1_000, clock);
+        index.add(42L, clock.millis());
+
+        clock.advance(Duration.ofDays(6));
+        index.add(43L, clock.millis());
+        index.expire();
+        assertThat(index.contains(42L)).isTrue();
+        assertThat(index.contains(43L)).isTrue();
+
+        // El balde de 42 queda fuera de la ventana; el de 43 todavía no
+        clock.advance(Duration.ofDays(1).plus(RETENTION.dividedBy(24)));
+        index.expire();
+        assertThat(index.contains(42L)).isFalse();
+        assertThat(index.contains(43L)).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void revocationsOlderThanTheRetentionAreNotIndexed() {
+        RevokedFamilyIndex index = new RevokedFamilyIndex(RETENTION, 24, 1_000, clock);
+
+        index.add(7L, clock.millis() - RETENTION.toMillis());
+
+        assertThat(index.contains(7L)).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void memoryStaysBoundedByDroppingTheOldestBucket() {
+        RevokedFamilyIndex index = new RevokedFamilyIndex(RETENTION, 24, 100_000, clock);
+
+        long id = 1;
+        for (int hour = 0; hour < 24 * 6; hour++) {
+            for (int i = 0; i < 5_000; i++) {
+                index.add(id++, clock.millis());
+            }
+            clock.advance(Duration.ofHours(1));
+        }
+
+        assertThat(index.size()).isLessThanOrEqualTo(100_000);
+        assertThat(index.capacityEvictions()).isGreaterThan(0);
+        assertThat(index.contains(1L)).isFalse();
+        assertThat(index.contains(id - 1)).isTrue();
+        // Tablas de long con factor de carga entre 0.25 y 0.5: como mucho 32 bytes por familia
+        assertThat(index.memoryBytes()).isLessThanOrEqualTo(32L * index.size());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.fedeherrera.spring_secure_api_starter.security.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+
+class OpaqueTokensTest {
+
+    @Test
+    void generatesUrlSafeTokensOf256Bits() {
+        String token = OpaqueTokens.generate();
+
+        assertThat(token).hasSize(43).matches("[A-Za-z0-9_-]+");
+        assertThat(OpaqueTokens.generate()).isNotEqualTo(token);
+    }
+
+    @Test
+    void digestMatchesWhatTheMigrationStoresForLegacyTokens() {
+        // SELECT SHA2('9b2f6c1e-1d2a-4c59-8a43-5f0d2b7e9c11', 256) en MySQL
+        String legacy = "9b2f6c1e-1d2a-4c59-8a43-5f0d2b7e9c11";
+
+        byte[] digest = OpaqueTokens.sha256(legacy);
+
+        assertThat(digest).hasSize(32);
+        assertThat(HexFormat.of().formatHex(digest)).isEqualTo(
+                "e253cc3ea69b692069ba21944227437c33b335b377e49ebbf39ff735eb22a7ae");
+    }
+}
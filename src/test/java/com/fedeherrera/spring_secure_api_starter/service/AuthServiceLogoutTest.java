@@ -0,0 +1,105 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fedeherrera.spring_secure_api_starter.config.JwtProperties;
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.exception.AuthException;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.JwtKeyRing;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.RevokedAccessTokenStore;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Después del logout ni el access token ni un token revocado por jti abren una sesión nueva.
+ */
+class AuthServiceLogoutTest {
+
+    private EmbeddedDatabase database;
+    private JwtService jwtService;
+    private AccessTokenRevocationService revocationService;
+    private RefreshTokenService refreshTokenService;
+    private AuthService authService;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V14__create_revoked_access_token_table.sql")
+                .build();
+
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        jwtService = new JwtService(new JwtKeyRing(properties),
+                new VerifiedTokenCache(new SimpleMeterRegistry(), false, 0, Duration.ZERO),
+                new RoleCatalog(mock(RoleRepository.class), new SimpleMeterRegistry(), Duration.ofSeconds(30)),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604_800_000L);
+
+        revocationService = new AccessTokenRevocationService(
+                new RevokedAccessTokenStore(new JdbcTemplate(database)), mock(JdbcLeaseLock.class),
+                new SimpleMeterRegistry(), 900_000L, Duration.ofMinutes(1), 1_000, 0.001, Duration.ofSeconds(10), 1_000);
+
+        principal = new UserPrincipal(1L, "fede", null, true, 0L, null, List.of("ROLE_USER"));
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.loadPrincipal("fede")).thenReturn(principal);
+        refreshTokenService = mock(RefreshTokenService.class);
+
+        authService = new AuthService(mock(UserService.class), mock(RoleService.class), mock(PasswordEncoder.class),
+                mock(RegistrationWriter.class), jwtService,
+                mock(AuthenticationManager.class), mock(GoogleTokenVerifierService.class),
+                mock(GoogleLoginCache.class), userDetailsService, refreshTokenService, revocationService,
+                new AuthMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void accessTokenCannotRefreshAfterLogout() {
+        String access = jwtService.generateToken(principal);
+
+        authService.logout(access, null);
+
+        assertThatThrownBy(() -> authService.refreshToken(access)).isInstanceOf(AuthException.class);
+        verify(refreshTokenService, never()).rotate(any(ValidatedToken.class), any(UserPrincipal.class));
+    }
+
+    @Test
+    void refreshTokenOnTheDenylistIsRejectedBeforeRotating() {
+        String refresh = jwtService.generateRefreshToken(principal, 1L, 0L);
+        revocationService.revoke(jwtService.validate(refresh), principal.getId());
+
+        assertThatThrownBy(() -> authService.refreshToken(refresh)).isInstanceOf(AuthException.class);
+        verify(refreshTokenService, never()).rotate(any(ValidatedToken.class), any(UserPrincipal.class));
+    }
+}
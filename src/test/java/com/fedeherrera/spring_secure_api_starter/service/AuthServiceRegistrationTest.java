@@ -0,0 +1,113 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.fedeherrera.spring_secure_api_starter.dto.PublicRegisterRequest;
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cuenta las operaciones contra la DB del registro público: cada mock es un round trip.
+ * El hash se calcula antes de entrar a RegistrationWriter (la parte transaccional).
+ */
+class AuthServiceRegistrationTest {
+
+    private UserService userService;
+    private RoleService roleService;
+    private VerificationService verificationService;
+    private EmailService emailService;
+    private PasswordEncoder passwordEncoder;
+    private RegistrationWriter registrationWriter;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        roleService = mock(RoleService.class);
+        verificationService = mock(VerificationService.class);
+        emailService = mock(EmailService.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenReturn("{bcrypt}hash");
+        registrationWriter = new RegistrationWriter(userService, verificationService, emailService);
+
+        authService = new AuthService(userService, roleService, passwordEncoder, registrationWriter,
+                mock(JwtService.class), mock(AuthenticationManager.class), mock(GoogleTokenVerifierService.class),
+                mock(GoogleLoginCache.class), mock(UserDetailsServiceImpl.class), mock(RefreshTokenService.class),
+                mock(AccessTokenRevocationService.class), new AuthMetrics(new SimpleMeterRegistry()));
+
+        Role roleUser = new Role();
+        roleUser.setName("ROLE_USER");
+        when(roleService.findByName("ROLE_USER")).thenReturn(Optional.of(roleUser));
+    }
+
+    @Test
+    void publicRegistrationInsertsWithoutExistenceChecks() {
+        when(userService.register(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(verificationService.createToken(any(User.class))).thenReturn("token");
+
+        authService.registerPublic(request());
+
+        // Usuario (con sus roles), token y email encolado: sin existsByUsername / existsByEmail
+        verify(userService).register(any(User.class));
+        verifyNoMoreInteractions(userService);
+        verify(verificationService).createToken(any(User.class));
+        verify(emailService).sendEmail(eq("fede@test.com"), anyString(), anyString());
+    }
+
+    @Test
+    void passwordIsHashedBeforeTheTransactionalInsert() {
+        RegistrationWriter writer = mock(RegistrationWriter.class);
+        AuthService service = new AuthService(userService, roleService, passwordEncoder, writer,
+                mock(JwtService.class), mock(AuthenticationManager.class), mock(GoogleTokenVerifierService.class),
+                mock(GoogleLoginCache.class), mock(UserDetailsServiceImpl.class), mock(RefreshTokenService.class),
+                mock(AccessTokenRevocationService.class), new AuthMetrics(new SimpleMeterRegistry()));
+
+        service.registerPublic(request());
+
+        InOrder order = inOrder(passwordEncoder, writer);
+        order.verify(passwordEncoder).encode("s3cret-pass");
+        order.verify(writer).insertPending(argThat(user -> "{bcrypt}hash".equals(user.getPassword())));
+        verifyNoMoreInteractions(passwordEncoder);
+    }
+
+    @Test
+    void duplicateStopsBeforeCreatingTheToken() {
+        when(userService.register(any(User.class))).thenThrow(new RegistrationException("Email ya registrado."));
+
+        assertThatThrownBy(() -> authService.registerPublic(request()))
+                .isInstanceOf(RegistrationException.class)
+                .hasMessage("Email ya registrado.");
+        verifyNoInteractions(verificationService, emailService);
+    }
+
+    private static PublicRegisterRequest request() {
+        PublicRegisterRequest request = new PublicRegisterRequest();
+        request.setUsername("fede");
+        request.setFirstName("Fede");
+        request.setLastName("Herrera");
+        request.setEmail("fede@test.com");
+        request.setPassword("s3cret-pass");
+        return request;
+    }
+}
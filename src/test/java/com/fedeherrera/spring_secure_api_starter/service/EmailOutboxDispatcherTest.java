@@ -0,0 +1,114 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage;
+import com.fedeherrera.spring_secure_api_starter.entity.EmailOutboxMessage.Status;
+import com.fedeherrera.spring_secure_api_starter.repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EmailOutboxDispatcherTest {
+
+    private EmailOutboxRepository outboxRepository;
+    private JavaMailSender mailSender;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        mailSender = mock(JavaMailSender.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        dispatcher = new EmailOutboxDispatcher(outboxRepository, mailSender, mock(PlatformTransactionManager.class),
+                meterRegistry, 50, 8, Duration.ofSeconds(30), Duration.ofHours(1),
+                Duration.ofMinutes(5), Duration.ofSeconds(1));
+    }
+
+    @Test
+    void partialFailureRetriesOnlyTheFailedMessages() {
+        EmailOutboxMessage delivered = message(1L, "ok@test.com", 0);
+        EmailOutboxMessage rejected = message(2L, "bounce@test.com", 0);
+        EmailOutboxMessage lastChance = message(3L, "bounce-again@test.com", 7);
+        when(outboxRepository.findDueForUpdate(eq(Status.PENDING), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(delivered, rejected, lastChance));
+
+        List<SimpleMailMessage> batch = new ArrayList<>();
+        doAnswer(inv -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (Object argument : inv.getArguments()) {
+                SimpleMailMessage mail = (SimpleMailMessage) argument;
+                batch.add(mail);
+                if (mail.getTo()[0].startsWith("bounce")) {
+                    failed.put(mail, new IllegalStateException("550 mailbox unavailable"));
+                }
+            }
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(3);
+
+        // Un solo envío para todo el lote (una conexión SMTP)
+        assertThat(batch).hasSize(3);
+
+        assertThat(delivered.getStatus()).isEqualTo(Status.SENT);
+        assertThat(delivered.getSentAt()).isNotNull();
+        // El link con el token no queda guardado después del envío
+        assertThat(delivered.getBody()).isNull();
+
+        assertThat(rejected.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(rejected.getAttempts()).isEqualTo(1);
+        assertThat(rejected.getLastError()).contains("550");
+        assertThat(rejected.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(30));
+
+        assertThat(lastChance.getStatus()).isEqualTo(Status.DEAD);
+        assertThat(lastChance.getAttempts()).isEqualTo(8);
+        assertThat(lastChance.getBody()).isEqualTo("link");
+
+        assertThat(meterRegistry.counter("email.outbox.messages", "result", "sent").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("email.outbox.messages", "result", "retry").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("email.outbox.messages", "result", "dead").count()).isEqualTo(1);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(dispatcher.backoff(5)).isEqualTo(Duration.ofMinutes(8));
+        assertThat(dispatcher.backoff(30)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private static EmailOutboxMessage message(Long id, String recipient, int attempts) {
+        return EmailOutboxMessage.builder()
+                .id(id)
+                .recipient(recipient)
+                .subject("Verify your account")
+                .body("link")
+                .attempts(attempts)
+                .build();
+    }
+}
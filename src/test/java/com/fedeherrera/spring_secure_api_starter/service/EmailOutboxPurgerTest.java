@@ -0,0 +1,68 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fedeherrera.spring_secure_api_starter.repository.EmailOutboxRepository;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EmailOutboxPurgerTest {
+
+    private EmailOutboxRepository outboxRepository;
+    private JdbcLeaseLock leaseLock;
+    private EmailOutboxPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        leaseLock = mock(JdbcLeaseLock.class);
+        purger = new EmailOutboxPurger(outboxRepository, leaseLock, new SimpleMeterRegistry(),
+                Duration.ofDays(7), 100, Duration.ofMinutes(2));
+    }
+
+    @Test
+    void deletesInBatchesUntilAShortOne() {
+        when(leaseLock.tryAcquire(eq(EmailOutboxPurger.LOCK_NAME), any(Duration.class))).thenReturn(true);
+        when(outboxRepository.deleteFinishedBatch(any(LocalDateTime.class), eq(100))).thenReturn(100, 100, 7);
+
+        purger.purgeFinished();
+
+        verify(outboxRepository, times(3)).deleteFinishedBatch(any(LocalDateTime.class), eq(100));
+        verify(leaseLock).release(EmailOutboxPurger.LOCK_NAME);
+    }
+
+    @Test
+    void emptyPassRunsASingleDelete() {
+        when(outboxRepository.deleteFinishedBatch(any(LocalDateTime.class), anyInt())).thenReturn(0);
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(7);
+
+        assertThat(purger.purge(cutoff)).isZero();
+
+        verify(outboxRepository).deleteFinishedBatch(cutoff, 100);
+    }
+
+    @Test
+    void skipsWhenAnotherReplicaHoldsTheLock() {
+        when(leaseLock.tryAcquire(eq(EmailOutboxPurger.LOCK_NAME), any(Duration.class))).thenReturn(false);
+
+        purger.purgeFinished();
+
+        verify(outboxRepository, never()).deleteFinishedBatch(any(LocalDateTime.class), anyInt());
+        verify(leaseLock, never()).release(EmailOutboxPurger.LOCK_NAME);
+    }
+}
@@ -0,0 +1,40 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GoogleLoginCacheTest {
+
+    private final GoogleLoginCache cache = new GoogleLoginCache(new SimpleMeterRegistry(), 100);
+
+    @Test
+    void retriesWithTheSameTokenHitTheCache() {
+        GoogleIdToken.Payload payload = payloadExpiringIn(3600);
+
+        cache.put("id-token", payload, 7L, "fede@gmail.com");
+
+        assertThat(cache.get("id-token")).hasValueSatisfying(entry -> {
+            assertThat(entry.userId()).isEqualTo(7L);
+            assertThat(entry.username()).isEqualTo("fede@gmail.com");
+        });
+        assertThat(cache.get("other-token")).isEmpty();
+    }
+
+    @Test
+    void expiredTokensAreNeverCached() {
+        cache.put("id-token", payloadExpiringIn(-1), 7L, "fede@gmail.com");
+
+        assertThat(cache.get("id-token")).isEmpty();
+    }
+
+    private static GoogleIdToken.Payload payloadExpiringIn(long seconds) {
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload();
+        payload.setExpirationTimeSeconds(System.currentTimeMillis() / 1000 + seconds);
+        return payload;
+    }
+}
@@ -0,0 +1,70 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GoogleLoginExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private GoogleLoginExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void rejectsImmediatelyOverTheConcurrencyCap() {
+        executor = new GoogleLoginExecutor(registry, 1, 1, Duration.ofSeconds(5));
+
+        executor.submit(this::blockUntilReleased);
+        executor.submit(this::blockUntilReleased);
+
+        assertThatThrownBy(() -> executor.submit(() -> "tercero")).isInstanceOf(ServiceBusyException.class);
+        assertThat(registry.counter("auth.google.login.rejected", "reason", "busy").count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowUpstreamTimesOutAsServiceBusy() {
+        executor = new GoogleLoginExecutor(registry, 1, 1, Duration.ofMillis(50));
+
+        CompletableFuture<String> result = executor.submit(this::blockUntilReleased);
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ServiceBusyException.class);
+        assertThat(registry.counter("auth.google.login.rejected", "reason", "timeout").count()).isEqualTo(1);
+    }
+
+    @Test
+    void completesWithTheLoginResult() throws Exception {
+        executor = new GoogleLoginExecutor(registry, 1, 1, Duration.ofSeconds(5));
+
+        assertThat(executor.submit(() -> "ok").get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(registry.get("auth.google.login.queue").timer().count()).isEqualTo(1);
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+}
@@ -0,0 +1,197 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fedeherrera.spring_secure_api_starter.config.JwtProperties;
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.filter.JwtAuthFilter;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+import com.fedeherrera.spring_secure_api_starter.security.event.SecurityEventAggregator;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.JwtKeyRing;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken.FailureReason;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.VerifiedTokenCache;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private JwtKeyRing keyRing;
+    private JwtService jwtService;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(SECRET);
+        keyRing = spy(new JwtKeyRing(properties));
+
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        jwtService = new JwtService(keyRing,
+                new VerifiedTokenCache(new SimpleMeterRegistry(), false, 0, Duration.ZERO),
+                new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofSeconds(30)),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604_800_000L);
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        principal = new UserPrincipal(User.builder()
+                .username("fede")
+                .email("fede@test.com")
+                .password("x")
+                .enabled(true)
+                .roles(Set.of(role))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validateReturnsClaimsOfAValidToken() {
+        String jwt = jwtService.generateToken(principal);
+
+        ValidatedToken token = jwtService.validate(jwt);
+
+        assertThat(token.isValid()).isTrue();
+        assertThat(token.subject()).isEqualTo("fede");
+        assertThat(token.issuedAt()).isNotNull();
+        assertThat(token.expiration()).isAfter(token.issuedAt());
+        assertThat(jwtService.isTokenValid(token, principal)).isTrue();
+    }
+
+    @Test
+    void validateReportsTheFailureReasonWithoutThrowing() {
+        String[] parts = jwtService.generateToken(principal).split("\\.");
+        char first = parts[2].charAt(0) == 'A' ? 'B' : 'A';
+        String tampered = parts[0] + "." + parts[1] + "." + first + parts[2].substring(1);
+
+        assertThat(jwtService.validate(null).failureReason()).isEqualTo(FailureReason.MISSING);
+        assertThat(jwtService.validate("not-a-jwt").failureReason()).isEqualTo(FailureReason.MALFORMED);
+        assertThat(jwtService.validate(tampered).failureReason()).isEqualTo(FailureReason.INVALID_SIGNATURE);
+
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String expired = jwtService.generateToken(principal);
+        assertThat(jwtService.validate(expired).failureReason()).isEqualTo(FailureReason.EXPIRED);
+    }
+
+    @Test
+    void filterVerifiesTheSignatureExactlyOncePerRequest() throws Exception {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.loadPrincipal("fede")).thenReturn(principal);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, mock(CredentialVersionRegistry.class),
+                mock(AccessTokenRevocationService.class), mock(SecurityEventAggregator.class));
+
+        String jwt = jwtService.generateToken(principal);
+        clearInvocations(keyRing);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/me");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+        verify(keyRing, times(1)).resolve(any());
+    }
+
+    @Test
+    void refreshTokensAreNotAcceptedAsBearerTokens() throws Exception {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.loadPrincipal("fede")).thenReturn(principal);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, mock(CredentialVersionRegistry.class),
+                mock(AccessTokenRevocationService.class), mock(SecurityEventAggregator.class));
+
+        String refresh = jwtService.generateRefreshToken(principal, 1L, 0L);
+        assertThat(jwtService.isRefreshToken(jwtService.validate(refresh))).isTrue();
+        assertThat(jwtService.isRefreshToken(jwtService.validate(jwtService.generateToken(principal)))).isFalse();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/me");
+        request.addHeader("Authorization", "Bearer " + refresh);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void legacyAccessTokenRoundedUpToTheNextSecondIsNotARefreshToken() {
+        // jwt.expiration sin segundos enteros: emitido en t.6s, exp = t + 900.5s se trunca a t + 901s
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_500L);
+        Instant issuedAt = Instant.ofEpochSecond(Instant.now().getEpochSecond());
+        String legacyAccess = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+                .setSubject("fede")
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plusSeconds(901)))
+                .signWith(keyRing.getActiveKey(), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThat(jwtService.isRefreshToken(jwtService.validate(legacyAccess))).isFalse();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void singleParseVersusLegacyFlow(TestReporter reporter) {
+        String jwt = jwtService.generateToken(principal);
+        int iterations = 50_000;
+
+        // Flujo anterior del filtro: firma + username + (username, issuedAt, expiration)
+        long legacy = time(iterations, () -> {
+            jwtService.isTokenSignatureValid(jwt);
+            jwtService.extractUsername(jwt);
+            jwtService.extractUsername(jwt);
+            jwtService.extractClaim(jwt, Claims::getIssuedAt);
+            jwtService.extractClaim(jwt, Claims::getExpiration);
+        });
+        long singleParse = time(iterations, () -> jwtService.isTokenValid(jwtService.validate(jwt), principal));
+
+        reporter.publishEntry("jwt", String.format("legacy: %d ns/op, single parse: %d ns/op (x%.1f)",
+                legacy, singleParse, (double) legacy / singleParse));
+        assertThat(singleParse).isLessThan(legacy);
+    }
+
+    private static long time(int iterations, Runnable op) {
+        for (int i = 0; i < iterations / 5; i++) {
+            op.run(); // warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
@@ -0,0 +1,45 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitBackend;
+import com.fedeherrera.spring_secure_api_starter.ratelimit.RateLimitPolicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimitServiceTest {
+
+    @Test
+    void countsAllowedAndDeniedPerPolicy() {
+        RateLimitBackend backend = mock(RateLimitBackend.class);
+        when(backend.tryConsume(anyLong(), eq(RateLimitPolicy.LOGIN))).thenReturn(true, true, false);
+        when(backend.tryConsume(anyLong(), eq(RateLimitPolicy.API))).thenReturn(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitService service = new RateLimitService(backend, meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            service.tryConsume(1L, RateLimitPolicy.LOGIN);
+        }
+        service.tryConsume(1L, RateLimitPolicy.API);
+
+        assertThat(count(meterRegistry, "login", "allowed")).isEqualTo(2);
+        assertThat(count(meterRegistry, "login", "denied")).isEqualTo(1);
+        assertThat(count(meterRegistry, "api", "allowed")).isEqualTo(1);
+        // Todas las series existen desde el arranque, aunque no haya rechazos
+        assertThat(count(meterRegistry, "api", "denied")).isZero();
+    }
+
+    private static double count(SimpleMeterRegistry meterRegistry, String policy, String result) {
+        return meterRegistry.get("auth.ratelimit.requests")
+                .tag("policy", policy)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
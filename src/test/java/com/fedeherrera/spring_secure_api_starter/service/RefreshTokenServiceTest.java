@@ -0,0 +1,177 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fedeherrera.spring_secure_api_starter.config.JwtProperties;
+import com.fedeherrera.spring_secure_api_starter.entity.UserPrincipal;
+import com.fedeherrera.spring_secure_api_starter.exception.AuthException;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+import com.fedeherrera.spring_secure_api_starter.scheduling.JdbcLeaseLock;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.JwtKeyRing;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.RevokedAccessTokenStore;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.ValidatedToken;
+import com.fedeherrera.spring_secure_api_starter.security.jwt.VerifiedTokenCache;
+import com.fedeherrera.spring_secure_api_starter.security.refresh.RefreshTokenFamilyStore;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RefreshTokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final long ACCESS_EXPIRATION = 900_000L;
+    private static final long REFRESH_EXPIRATION = 604_800_000L;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JwtKeyRing keyRing;
+    private JwtService jwtService;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V1__init_schema.sql")
+                .addScript("classpath:db/migration/V13__create_refresh_token_family_table.sql")
+                .addScript("classpath:db/migration/V14__create_revoked_access_token_table.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, enabled, created_at) "
+                + "VALUES (1, 'fede', 'fede@test.com', 'x', TRUE, ?)", LocalDateTime.now());
+
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(SECRET);
+        keyRing = new JwtKeyRing(properties);
+        jwtService = new JwtService(keyRing,
+                new VerifiedTokenCache(new SimpleMeterRegistry(), false, 0, Duration.ZERO),
+                new RoleCatalog(mock(RoleRepository.class), new SimpleMeterRegistry(), Duration.ofSeconds(30)),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", ACCESS_EXPIRATION);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", REFRESH_EXPIRATION);
+
+        principal = new UserPrincipal(1L, "fede", null, true, 0L, null, List.of("ROLE_USER"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void rotatedRefreshTokenCannotBeUsedAgain() {
+        RefreshTokenService service = service(null);
+        ValidatedToken first = jwtService.validate(service.issue(principal));
+
+        ValidatedToken second = jwtService.validate(service.rotate(first, principal));
+
+        assertThat(second.claim(JwtService.CLAIM_GENERATION, Long.class)).isEqualTo(1L);
+        assertThatThrownBy(() -> service.rotate(first, principal)).isInstanceOf(AuthException.class);
+    }
+
+    @Test
+    void accessTokensAreNeverExchanged() {
+        RefreshTokenService service = service(Instant.now());
+        ValidatedToken access = jwtService.validate(jwtService.generateToken(principal));
+        // Access token anterior al claim "typ": se reconoce por su duración
+        ValidatedToken legacyAccess = jwtService.validate(legacyToken(Instant.now(), ACCESS_EXPIRATION));
+
+        assertThatThrownBy(() -> service.rotate(access, principal)).isInstanceOf(AuthException.class);
+        assertThatThrownBy(() -> service.rotate(legacyAccess, principal)).isInstanceOf(AuthException.class);
+        assertThat(familyCount()).isZero();
+    }
+
+    @Test
+    void legacyRefreshTokenIsExchangedExactlyOnce() {
+        RefreshTokenService service = service(Instant.now());
+        ValidatedToken legacy = jwtService.validate(legacyToken(Instant.now().minusSeconds(3600), REFRESH_EXPIRATION));
+
+        ValidatedToken next = jwtService.validate(service.rotate(legacy, principal));
+
+        assertThat(next.claim(JwtService.CLAIM_FAMILY_ID, Long.class)).isNotNull();
+        assertThatThrownBy(() -> service.rotate(legacy, principal)).isInstanceOf(AuthException.class);
+        // Otra réplica (otro Bloom filter en memoria) tampoco lo acepta: decide la PK en la DB
+        assertThatThrownBy(() -> service(Instant.now()).rotate(legacy, principal)).isInstanceOf(AuthException.class);
+        assertThat(familyCount()).isEqualTo(1);
+    }
+
+    @Test
+    void legacyExchangesStayOutOfTheAccessTokenBloomFilter() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccessTokenRevocationService revocationService = revocationService(meterRegistry);
+        ValidatedToken legacy = jwtService.validate(legacyToken(Instant.now().minusSeconds(3600), REFRESH_EXPIRATION));
+
+        service(Instant.now(), revocationService).rotate(legacy, principal);
+        // Tampoco entra por la sincronización entre réplicas: vence mucho después que un access token
+        revocationService.syncRevocations();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revoked_access_token", Integer.class))
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("auth.jwt.denylist.buckets").gauge().value()).isZero();
+    }
+
+    @Test
+    void legacyRefreshTokensAfterTheCutoverOrWithoutOneAreRejected() {
+        ValidatedToken legacy = jwtService.validate(legacyToken(Instant.now().minusSeconds(60), REFRESH_EXPIRATION));
+
+        assertThatThrownBy(() -> service(Instant.now().minusSeconds(3600)).rotate(legacy, principal))
+                .isInstanceOf(AuthException.class);
+        assertThatThrownBy(() -> service(null).rotate(legacy, principal))
+                .isInstanceOf(AuthException.class);
+        assertThat(familyCount()).isZero();
+    }
+
+    private RefreshTokenService service(Instant legacyCutover) {
+        return service(legacyCutover, revocationService(new SimpleMeterRegistry()));
+    }
+
+    private RefreshTokenService service(Instant legacyCutover, AccessTokenRevocationService revocationService) {
+        return new RefreshTokenService(new RefreshTokenFamilyStore(jdbcTemplate), jwtService, revocationService,
+                mock(JdbcLeaseLock.class), new SimpleMeterRegistry(), REFRESH_EXPIRATION,
+                Duration.ofSeconds(5), Duration.ofSeconds(10), 24, 1_000, 1_000,
+                legacyCutover == null ? "" : legacyCutover.toString());
+    }
+
+    private AccessTokenRevocationService revocationService(SimpleMeterRegistry meterRegistry) {
+        return new AccessTokenRevocationService(new RevokedAccessTokenStore(jdbcTemplate), mock(JdbcLeaseLock.class),
+                meterRegistry, ACCESS_EXPIRATION, Duration.ofMinutes(1), 1_000, 0.001, Duration.ofSeconds(10), 1_000);
+    }
+
+    // Como los emitía la versión anterior: sin "typ", "fid" ni jti
+    private String legacyToken(Instant issuedAt, long lifetimeMillis) {
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+                .claim(JwtService.CLAIM_USER_ID, 1L)
+                .setSubject("fede")
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plusMillis(lifetimeMillis)))
+                .signWith(keyRing.getActiveKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private int familyCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_token_family", Integer.class);
+    }
+}
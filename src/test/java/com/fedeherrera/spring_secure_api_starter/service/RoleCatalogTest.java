@@ -0,0 +1,120 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.RoleMask;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RoleCatalogTest {
+
+    private RoleRepository roleRepository;
+    private List<Role> roles;
+
+    @BeforeEach
+    void setUp() {
+        roleRepository = mock(RoleRepository.class);
+        roles = new ArrayList<>(List.of(role(1L, "ROLE_USER"), role(2L, "ROLE_ADMIN")));
+        when(roleRepository.findAll()).thenAnswer(inv -> List.copyOf(roles));
+    }
+
+    @Test
+    void lookupsAreServedFromMemory() {
+        RoleCatalog catalog = new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofHours(1));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(catalog.findByName("ROLE_USER")).map(Role::getId).contains(1L);
+            assertThat(catalog.findByName("ROLE_ADMIN")).map(Role::getId).contains(2L);
+        }
+
+        verify(roleRepository, times(1)).findAll();
+    }
+
+    @Test
+    void authoritiesReuseTheCatalogInstances() {
+        RoleCatalog catalog = new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofHours(1));
+
+        GrantedAuthority first = catalog.authorities(List.of("ROLE_USER")).iterator().next();
+        GrantedAuthority second = catalog.authorities(List.of("ROLE_USER")).iterator().next();
+        Set<GrantedAuthority> unknown = catalog.authorities(List.of("ROLE_LEGACY"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(unknown).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_LEGACY");
+    }
+
+    @Test
+    void roleMaskResolvesToASharedSetPerCombination() {
+        RoleCatalog catalog = new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofHours(1));
+        long userAndAdmin = RoleMask.of(List.of(roles.get(0), roles.get(1)));
+
+        Set<GrantedAuthority> first = catalog.authorities(userAndAdmin);
+
+        assertThat(userAndAdmin).isEqualTo(0b11L);
+        assertThat(first).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(catalog.authorities(userAndAdmin)).isSameAs(first);
+        assertThat(catalog.authorities(0L)).isEmpty();
+    }
+
+    @Test
+    void unknownNamesReloadAtMostOncePerInterval() {
+        RoleCatalog catalog = new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ZERO);
+        roles.add(role(3L, "ROLE_AUDITOR"));
+
+        // Un rol agregado después del arranque aparece en el primer uso
+        assertThat(catalog.findByName("ROLE_AUDITOR")).map(Role::getId).contains(3L);
+
+        RoleCatalog throttled = new RoleCatalog(roleRepository, new SimpleMeterRegistry(), Duration.ofHours(1));
+        for (int i = 0; i < 100; i++) {
+            assertThat(throttled.findByName("ROLE_ROOT")).isEmpty();
+        }
+        // 2 cargas iniciales + 1 recarga por el miss de ROLE_AUDITOR; ROLE_ROOT no recarga
+        verify(roleRepository, times(3)).findAll();
+    }
+
+    @Test
+    void unknownNamesAreKeptAndUnknownBitsDroppedBothAreCounted() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RoleCatalog catalog = new RoleCatalog(roleRepository, meterRegistry, Duration.ofHours(1));
+
+        Set<GrantedAuthority> byName = catalog.authorities(List.of("ROLE_USER", "ROLE_LEGACY"));
+        // Bit 5 = role_id 6, que no está en el catálogo
+        Set<GrantedAuthority> byMask = catalog.authorities(0b100001L);
+
+        assertThat(byName).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_USER", "ROLE_LEGACY");
+        assertThat(byMask).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        assertThat(meterRegistry.get("auth.roles.catalog.unknown").tag("source", "name").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.roles.catalog.unknown").tag("source", "mask").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void catalogSizeGaugeIsRegisteredAfterConstruction() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RoleCatalog catalog = new RoleCatalog(roleRepository, meterRegistry, Duration.ofHours(1));
+
+        catalog.registerMetrics();
+
+        assertThat(meterRegistry.get("auth.roles.catalog.size").gauge().value()).isEqualTo(2);
+    }
+
+    private static Role role(Long id, String name) {
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        return role;
+    }
+}
@@ -0,0 +1,40 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.fedeherrera.spring_secure_api_starter.dto.UserAuthProjection;
+import com.fedeherrera.spring_secure_api_starter.repository.RoleRepository;
+import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserDetailsServiceImplTest {
+
+    @Test
+    void loginLooksUpTheLowercasedUsernameAndSharesTheCacheKey() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAuthByUsername("fede")).thenReturn(Optional.of(
+                new UserAuthProjection(1L, "fede", "{bcrypt}hash", true, 0L, null, 0L)));
+        UserDetailsServiceImpl service = new UserDetailsServiceImpl(userRepository,
+                new RoleCatalog(mock(RoleRepository.class), new SimpleMeterRegistry(), Duration.ofSeconds(30)),
+                new SimpleMeterRegistry(), 100, Duration.ofSeconds(30));
+
+        UserDetails user = service.loadUserByUsername("Fede");
+
+        assertThat(user.getPassword()).isEqualTo("{bcrypt}hash");
+        // El login dejó el principal en la cache: sin segunda query
+        assertThat(service.loadPrincipal("FEDE").getUsername()).isEqualTo("fede");
+        verify(userRepository).findAuthByUsername("fede");
+        verifyNoMoreInteractions(userRepository);
+    }
+}
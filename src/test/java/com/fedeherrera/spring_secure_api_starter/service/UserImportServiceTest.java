@@ -0,0 +1,215 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fedeherrera.spring_secure_api_starter.config.PasswordHashingProperties;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportResult;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportResult.Status;
+import com.fedeherrera.spring_secure_api_starter.dto.UserImportSummary;
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+
+import jakarta.validation.Validation;
+
+class UserImportServiceTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:db/migration/V1__init_schema.sql")
+                .addScript("classpath:db/migration/V2__init_roles.sql")
+                .addScript("classpath:db/migration/V5__add_password_change_at_.sql")
+                .addScript("classpath:db/migration/V6__add_provider_user.sql")
+                .addScript("classpath:db/migration/V7__add_credential_version_user.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // Columna de V15; su backfill usa BIT_OR(1 << n), que es sintaxis de MySQL
+        jdbcTemplate.execute("ALTER TABLE users ADD COLUMN role_mask BIGINT NOT NULL DEFAULT 0");
+
+        RoleService roleService = mock(RoleService.class);
+        when(roleService.findByName(anyString())).thenAnswer(inv -> jdbcTemplate.query(
+                "SELECT id, name FROM roles WHERE name = ?",
+                (rs, i) -> role(rs.getLong("id"), rs.getString("name")),
+                inv.getArgument(0, String.class)).stream().findFirst());
+
+        PasswordHashingProperties hashing = new PasswordHashingProperties();
+        hashing.setThreads(4);
+        importService = new UserImportService(jdbcTemplate, new DataSourceTransactionManager(database),
+                new BCryptPasswordEncoder(4), roleService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), hashing, 3,
+                0, 5, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void csvRowsAreCreatedOrRejectedOneByOne() {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, enabled, created_at) "
+                + "VALUES ('taken', 'taken@test.com', 'x', TRUE, ?)", LocalDateTime.now());
+        String csv = """
+                username,email,password,roles,firstName
+                ana,ana@test.com,secret,ROLE_USER,Ana
+                bob,bob@test.com,secret,ROLE_USER|ROLE_ADMIN,"Bob, Jr."
+                ana,other@test.com,secret,ROLE_USER,
+                TAKEN,new@test.com,secret,ROLE_USER,
+                carl,not-an-email,secret,ROLE_USER,
+                dan,dan@test.com,secret,ROLE_ROOT,
+                "eve,eve@test.com,secret,ROLE_USER,
+                """;
+
+        List<UserImportResult> results = new ArrayList<>();
+        UserImportSummary summary = importService.importUsers(stream(csv), UserImportService.Format.CSV, "admin",
+                results::add);
+
+        assertThat(results).extracting(UserImportResult::line, UserImportResult::status).containsExactly(
+                tuple(2L, Status.CREATED),
+                tuple(3L, Status.CREATED),
+                tuple(4L, Status.DUPLICATE),
+                tuple(5L, Status.DUPLICATE),
+                tuple(6L, Status.INVALID),
+                tuple(7L, Status.INVALID),
+                tuple(8L, Status.INVALID));
+        assertThat(results.get(3).message()).isEqualTo("Username ya registrado.");
+        assertThat(summary.total()).isEqualTo(7);
+        assertThat(summary.created()).isEqualTo(2);
+        assertThat(summary.rejected()).isEqualTo(5);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT first_name FROM users WHERE username = 'bob'", String.class))
+                .isEqualTo("Bob, Jr.");
+        assertThat(jdbcTemplate.queryForObject("SELECT created_by FROM users WHERE username = 'ana'", String.class))
+                .isEqualTo("admin");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_roles ur JOIN users u ON u.id = ur.user_id "
+                + "WHERE u.username = 'bob'", Integer.class)).isEqualTo(2);
+        // ROLE_USER (id 1) y ROLE_ADMIN (id 2)
+        assertThat(jdbcTemplate.queryForObject("SELECT role_mask FROM users WHERE username = 'bob'", Long.class))
+                .isEqualTo(0b11L);
+        String hash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'ana'", String.class);
+        assertThat(new BCryptPasswordEncoder().matches("secret", hash)).isTrue();
+    }
+
+    @Test
+    void ndjsonLinesAreParsedAsAdminRequests() {
+        String ndjson = """
+                {"username":"ana","email":"ana@test.com","password":"secret","roles":["ROLE_USER"]}
+                {"username":
+                """;
+
+        List<UserImportResult> results = new ArrayList<>();
+        importService.importUsers(stream(ndjson), UserImportService.Format.NDJSON, "admin", results::add);
+
+        assertThat(results).extracting(UserImportResult::status).containsExactly(Status.CREATED, Status.INVALID);
+        assertThat(results.get(1).message()).startsWith("JSON inválido");
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsIsRejectedUpFront() {
+        assertThatThrownBy(() -> importService.importUsers(stream("username,email\nana,ana@test.com\n"),
+                UserImportService.Format.CSV, "admin", result -> { }))
+                .isInstanceOf(RegistrationException.class)
+                .hasMessageContaining("password");
+    }
+
+    @Test
+    void busyHashingPoolIsRetriedInsteadOfFailingTheRow() {
+        // El pool de la app rechaza uno de cada dos hashes, como con una ráfaga de logins
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        AtomicInteger calls = new AtomicInteger();
+        PasswordEncoder busyEncoder = mock(PasswordEncoder.class);
+        when(busyEncoder.encode(anyString())).thenAnswer(inv -> {
+            if (calls.incrementAndGet() % 2 == 1) {
+                throw new ServiceBusyException("Servidor ocupado, intenta de nuevo en unos segundos");
+            }
+            return bcrypt.encode(inv.getArgument(0, CharSequence.class));
+        });
+        RoleService roleService = mock(RoleService.class);
+        when(roleService.findByName("ROLE_USER")).thenReturn(Optional.of(role(1L, "ROLE_USER")));
+        PasswordHashingProperties hashing = new PasswordHashingProperties();
+        hashing.setThreads(2);
+        UserImportService service = new UserImportService(jdbcTemplate, new DataSourceTransactionManager(database),
+                busyEncoder, roleService, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(), hashing, 10, 0, 5, Duration.ofMillis(1));
+
+        UserImportSummary summary = service.importUsers(stream("""
+                username,email,password,roles
+                ana,ana@test.com,secret,ROLE_USER
+                bob,bob@test.com,secret,ROLE_USER
+                """), UserImportService.Format.CSV, "admin", result -> { });
+
+        assertThat(summary.created()).isEqualTo(2);
+        assertThat(calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void importsOneHundredThousandUsers(TestReporter reporter) {
+        int rows = 100_000;
+        StringBuilder csv = new StringBuilder("username,email,password,roles\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@test.com,secret,ROLE_USER\n");
+        }
+        PasswordHashingProperties hashing = new PasswordHashingProperties();
+        RoleService roleService = mock(RoleService.class);
+        when(roleService.findByName("ROLE_USER")).thenReturn(Optional.of(role(1L, "ROLE_USER")));
+        UserImportService service = new UserImportService(jdbcTemplate, new DataSourceTransactionManager(database),
+                new BCryptPasswordEncoder(4), roleService, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(), hashing, 1000, hashing.getThreads(), 5, Duration.ofMillis(10));
+
+        UserImportSummary summary = service.importUsers(stream(csv.toString()), UserImportService.Format.CSV, "admin",
+                result -> { });
+
+        reporter.publishEntry("import", String.format("%d filas en %d ms (%.0f filas/s, %d threads de hashing)",
+                summary.total(), summary.elapsedMillis(),
+                summary.total() * 1000.0 / Math.max(1, summary.elapsedMillis()), hashing.getThreads()));
+        assertThat(summary.created()).isEqualTo(rows);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_roles", Integer.class)).isEqualTo(rows);
+    }
+
+    private static Role role(Long id, String name) {
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        return role;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
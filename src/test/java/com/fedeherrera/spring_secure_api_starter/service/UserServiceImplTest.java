@@ -0,0 +1,197 @@
+package com.fedeherrera.spring_secure_api_starter.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fedeherrera.spring_secure_api_starter.entity.Role;
+import com.fedeherrera.spring_secure_api_starter.entity.User;
+import com.fedeherrera.spring_secure_api_starter.exception.RegistrationException;
+import com.fedeherrera.spring_secure_api_starter.exception.ServiceBusyException;
+import com.fedeherrera.spring_secure_api_starter.repository.UserRepository;
+
+class UserServiceImplTest {
+
+    private UserRepository userRepository;
+    private RefreshTokenService refreshTokenService;
+    private CredentialVersionRegistry credentialVersionRegistry;
+    private PasswordEncoder passwordEncoder;
+    private PasswordResetWriter passwordResetWriter;
+    private UserServiceImpl userService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        refreshTokenService = mock(RefreshTokenService.class);
+        credentialVersionRegistry = new CredentialVersionRegistry(userRepository, 100, Duration.ofMinutes(1));
+        passwordEncoder = mock(PasswordEncoder.class);
+        passwordResetWriter = mock(PasswordResetWriter.class);
+        userService = new UserServiceImpl(userRepository, passwordEncoder, credentialVersionRegistry,
+                mock(UserDetailsServiceImpl.class), refreshTokenService, passwordResetWriter);
+        user = User.builder().username("fede").email("fede@test.com").password("x").build();
+    }
+
+    @Test
+    void registerIsASingleInsertWithoutExistenceChecks() {
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
+
+        assertThat(userService.register(user)).isSameAs(user);
+
+        verify(userRepository).saveAndFlush(user);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void duplicateUsernameIsReportedAsRegistrationError() {
+        when(userRepository.saveAndFlush(user)).thenThrow(duplicate("Duplicate entry 'fede' for key 'users.username'",
+                "users.username"));
+
+        assertThatThrownBy(() -> userService.register(user))
+                .isInstanceOf(RegistrationException.class)
+                .hasMessage("Username ya registrado.");
+    }
+
+    @Test
+    void duplicateEmailIsReportedAsRegistrationError() {
+        when(userRepository.saveAndFlush(user)).thenThrow(duplicate(
+                "Duplicate entry 'fede@test.com' for key 'users.email'", "users.email"));
+
+        assertThatThrownBy(() -> userService.register(user))
+                .isInstanceOf(RegistrationException.class)
+                .hasMessage("Email ya registrado.");
+    }
+
+    @Test
+    void withoutConstraintNameTheKeyIsReadFromTheMessageNotTheValue() {
+        // El valor duplicado contiene "email", pero la clave violada es username
+        when(userRepository.saveAndFlush(user)).thenThrow(duplicate(
+                "Duplicate entry 'email' for key 'users.username'", null));
+
+        assertThatThrownBy(() -> userService.register(user))
+                .isInstanceOf(RegistrationException.class)
+                .hasMessage("Username ya registrado.");
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotMasked() {
+        DataIntegrityViolationException notNull = duplicate("Column 'password' cannot be null", null);
+        when(userRepository.saveAndFlush(user)).thenThrow(notNull);
+
+        assertThatThrownBy(() -> userService.register(user)).isSameAs(notNull);
+    }
+
+    @Test
+    void disablingTheAccountRevokesStatelessTokens() {
+        user.setId(1L);
+        user.setEnabled(true);
+        when(userRepository.findCredentialVersionById(1L)).thenReturn(Optional.of(0L));
+        when(userRepository.save(user)).thenReturn(user);
+        // Un access token emitido con cv = 0 pasa en modo stateless
+        assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isTrue();
+
+        userService.setEnabled(user, false);
+
+        assertThat(user.getCredentialVersion()).isEqualTo(1L);
+        assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isFalse();
+        verify(refreshTokenService).revokeAll(1L);
+    }
+
+    @Test
+    void inMemoryStateChangesOnlyAfterTheCommit() {
+        user.setId(1L);
+        user.setEnabled(true);
+        when(userRepository.findCredentialVersionById(1L)).thenReturn(Optional.of(0L));
+        when(userRepository.save(user)).thenReturn(user);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.setEnabled(user, false);
+
+            // Sin commit (o con rollback) la memoria sigue igual que la DB
+            assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isTrue();
+            verify(refreshTokenService, never()).revokeAll(1L);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isFalse();
+            verify(refreshTokenService).revokeAll(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void resetPasswordHashesBeforeTheTransactionalWrite() {
+        user.setId(1L);
+        user.setCredentialVersion(1L);
+        when(passwordEncoder.encode("nueva-clave")).thenReturn("hash");
+        when(passwordResetWriter.apply("token", "hash")).thenReturn(user);
+
+        userService.resetPassword("token", "nueva-clave");
+
+        assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isFalse();
+        verify(refreshTokenService).revokeAll(1L);
+    }
+
+    @Test
+    void busyHashPoolLeavesTheResetTokenUnconsumed() {
+        when(passwordEncoder.encode("nueva-clave")).thenThrow(new ServiceBusyException("BCrypt saturado"));
+
+        assertThatThrownBy(() -> userService.resetPassword("token", "nueva-clave"))
+                .isInstanceOf(ServiceBusyException.class);
+
+        verifyNoInteractions(passwordResetWriter, refreshTokenService);
+    }
+
+    @Test
+    void changingRolesRevokesStatelessTokens() {
+        Role admin = new Role();
+        admin.setId(2L);
+        admin.setName("ROLE_ADMIN");
+        user.setId(1L);
+        when(userRepository.findCredentialVersionById(1L)).thenReturn(Optional.of(0L));
+        when(userRepository.save(user)).thenReturn(user);
+        // Un access token emitido con cv = 0 lleva el claim "roles" anterior
+        assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isTrue();
+
+        userService.setRoles(user, Set.of(admin));
+
+        assertThat(user.getCredentialVersion()).isEqualTo(1L);
+        assertThat(credentialVersionRegistry.isCurrent(1L, 0L)).isFalse();
+    }
+
+    @Test
+    void unchangedStateKeepsTheCredentialVersion() {
+        user.setEnabled(true);
+
+        userService.setEnabled(user, true);
+
+        assertThat(user.getCredentialVersion()).isZero();
+        verifyNoInteractions(userRepository, refreshTokenService);
+    }
+
+    private static DataIntegrityViolationException duplicate(String mysqlMessage, String constraintName) {
+        SQLIntegrityConstraintViolationException sql = new SQLIntegrityConstraintViolationException(mysqlMessage);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sql, constraintName));
+    }
+}